@@ -0,0 +1,107 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.AppApplication;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Поднимает PostgreSQL в Testcontainers и контекст приложения. JMH запускает каждую
+ * комбинацию параметров в отдельном форке, поэтому на форк приходится один контекст.
+ */
+public final class BenchmarkApplication {
+    private static final String IMAGE_VERSION = "postgres:13-alpine";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static PostgreSQLContainer<?> postgres;
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        return start(properties, WebApplicationType.NONE);
+    }
+
+    public static synchronized ConfigurableApplicationContext start(Map<String, Object> properties,
+                                                                    WebApplicationType webApplicationType) {
+        if (context == null) {
+            postgres = new PostgreSQLContainer<>(
+                    DockerImageName.parse(IMAGE_VERSION).asCompatibleSubstituteFor("postgres"));
+            postgres.start();
+
+            Map<String, Object> applicationProperties = new HashMap<>(properties);
+            applicationProperties.put("spring.datasource.url", postgres.getJdbcUrl());
+            applicationProperties.put("spring.datasource.username", postgres.getUsername());
+            applicationProperties.put("spring.datasource.password", postgres.getPassword());
+            // schema.sql holds the PERSON/BOOK tables used by the JdbcTemplate services
+            applicationProperties.put("spring.sql.init.mode", "always");
+            applicationProperties.put("spring.jpa.show-sql", "false");
+            applicationProperties.put("spring.jpa.properties.hibernate.generate_statistics", "false");
+            applicationProperties.put("logging.level.root", "WARN");
+
+            context = new SpringApplicationBuilder(AppApplication.class)
+                    .web(webApplicationType)
+                    .properties(applicationProperties)
+                    .run();
+        }
+        return context;
+    }
+
+    public static synchronized void stop() {
+        if (context != null) {
+            context.close();
+            postgres.stop();
+            context = null;
+            postgres = null;
+        }
+    }
+
+    public static UserDto newUser() {
+        long next = SEQUENCE.incrementAndGet();
+        return new UserDto(null, "Benchmark User " + next, "title-" + System.nanoTime() + "-" + next, 30);
+    }
+
+    public static List<BookDto> newBooks(Integer userId, int count) {
+        List<BookDto> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(new BookDto(null, userId, "Book " + i, "Author " + i, 100 + i));
+        }
+        return books;
+    }
+
+    public static UserBookRequest newUserBookRequest(int bookCount) {
+        UserDto user = newUser();
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName(user.getFullName());
+        userRequest.setTitle(user.getTitle());
+        userRequest.setAge(user.getAge());
+
+        List<BookRequest> bookRequests = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            BookRequest bookRequest = new BookRequest();
+            bookRequest.setTitle("Book " + i);
+            bookRequest.setAuthor("Author " + i);
+            bookRequest.setPageCount(100 + i);
+            bookRequests.add(bookRequest);
+        }
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(bookRequests);
+        return request;
+    }
+}
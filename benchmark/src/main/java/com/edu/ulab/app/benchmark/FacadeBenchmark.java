@@ -0,0 +1,94 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.edu.ulab.app.benchmark.BenchmarkApplication.newUserBookRequest;
+
+/**
+ * Полные сценарии {@link UserDataFacade} в конфигурации по умолчанию, с кэшем сервисов и без него.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FacadeBenchmark {
+
+    @Param({"10", "200"})
+    public int booksPerUser;
+
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    UserDataFacade userDataFacade;
+    Integer userId;
+    UserBookRequest updateRequest;
+    final AtomicLong updates = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userDataFacade = BenchmarkApplication.start(Map.of("service-cache.max-size", cacheSize))
+                .getBean(UserDataFacade.class);
+        userId = userDataFacade.createUserWithBooks(newUserBookRequest(booksPerUser)).getUserId();
+        updateRequest = newUserBookRequest(booksPerUser);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkApplication.stop();
+    }
+
+    @Benchmark
+    public UserBookResponse createUserWithBooks() {
+        return userDataFacade.createUserWithBooks(newUserBookRequest(booksPerUser));
+    }
+
+    /**
+     * Каждый вызов меняет название одной книги, остальные книги остаются прежними.
+     */
+    @Benchmark
+    public UserBookResponse updateUserWithBooks() {
+        updateRequest.getBookRequests().get(0).setTitle("Changed " + updates.incrementAndGet());
+        return userDataFacade.updateUserWithBooks(updateRequest, userId);
+    }
+
+    @Benchmark
+    public UserBookResponse getUserWithBooks() {
+        return userDataFacade.getUserWithBooks(userId);
+    }
+
+    @Benchmark
+    public void deleteUserWithBooks(UserToDelete userToDelete) {
+        userDataFacade.deleteUserWithBooks(userToDelete.userId);
+    }
+
+    @State(Scope.Thread)
+    public static class UserToDelete {
+        Integer userId;
+
+        @Setup(Level.Invocation)
+        public void create(FacadeBenchmark benchmark) {
+            userId = benchmark.userDataFacade.createUserWithBooks(newUserBookRequest(benchmark.booksPerUser)).getUserId();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.edu.ulab.app.benchmark.BenchmarkApplication.newBooks;
+import static com.edu.ulab.app.benchmark.BenchmarkApplication.newUser;
+
+/**
+ * Сравнение реализаций {@link UserService}/{@link BookService} на Spring Data JPA и JdbcTemplate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"jpa", "jdbc"})
+    public String implementation;
+
+    @Param({"10"})
+    public int booksPerUser;
+
+    UserService userService;
+    BookService bookService;
+    Integer userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ApplicationContext context = BenchmarkApplication.start(Map.of());
+        if ("jpa".equals(implementation)) {
+            userService = context.getBean(UserServiceImpl.class);
+            bookService = context.getBean(BookServiceImpl.class);
+        } else {
+            userService = context.getBean(UserServiceImplTemplate.class);
+            bookService = context.getBean(BookServiceImplTemplate.class);
+        }
+        userId = userService.createUser(newUser()).getId();
+        bookService.createBooks(newBooks(userId, booksPerUser));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkApplication.stop();
+    }
+
+    @Benchmark
+    public UserDto createUser() {
+        return userService.createUser(newUser());
+    }
+
+    @Benchmark
+    public UserDto getUserById() {
+        return userService.getUserById(userId);
+    }
+
+    @Benchmark
+    public UserDto updateUser() {
+        UserDto userDto = newUser();
+        userDto.setId(userId);
+        return userService.updateUser(userDto);
+    }
+
+    @Benchmark
+    public List<BookDto> getBookByUserId() {
+        return bookService.getBookByUserId(userId);
+    }
+
+    @Benchmark
+    public void deleteUserById(UserToDelete userToDelete) {
+        userService.deleteUserById(userToDelete.userId);
+    }
+
+    @State(Scope.Thread)
+    public static class UserToDelete {
+        Integer userId;
+
+        @Setup(Level.Invocation)
+        public void create(ServiceBenchmark benchmark) {
+            userId = benchmark.userService.createUser(newUser()).getId();
+        }
+    }
+}
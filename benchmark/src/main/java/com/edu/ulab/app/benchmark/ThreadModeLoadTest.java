@@ -0,0 +1,218 @@
+package com.edu.ulab.app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Нагрузочное сравнение обработки запросов на платформенных и виртуальных потоках.
+ * <p>
+ * Для каждого режима поднимается приложение на случайном порту, и заданное число клиентов в цикле
+ * создаёт пользователя с книгами и читает его обратно. Кэши сервисов отключены, чтобы каждый запрос
+ * доходил до PostgreSQL. Клиенты асинхронные, поэтому 10 000 клиентов не требуют 10 000 потоков
+ * в самом тесте. Виртуальные потоки требуют запуска на Java 21+.
+ * <pre>
+ *     mvn package exec:exec -Dbenchmark.main=com.edu.ulab.app.benchmark.ThreadModeLoadTest \
+ *         -Djmh.args="--clients=1000,5000,10000 --duration=30 --modes=platform,virtual"
+ * </pre>
+ * Результаты печатаются и пишутся в {@code target/thread-mode-load-test.csv}.
+ */
+public final class ThreadModeLoadTest {
+    private static final int BOOKS_PER_USER = 3;
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    private ThreadModeLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] clientCounts = {1000, 5000, 10000};
+        Duration duration = Duration.ofSeconds(30);
+        List<String> modes = List.of("platform", "virtual");
+        for (String arg : args) {
+            if (arg.startsWith("--clients=")) {
+                clientCounts = Arrays.stream(arg.substring("--clients=".length()).split(","))
+                        .mapToInt(Integer::parseInt)
+                        .toArray();
+            } else if (arg.startsWith("--duration=")) {
+                duration = Duration.ofSeconds(Long.parseLong(arg.substring("--duration=".length())));
+            } else if (arg.startsWith("--modes=")) {
+                modes = List.of(arg.substring("--modes=".length()).split(","));
+            }
+        }
+
+        ThreadModeLoadTest loadTest = new ThreadModeLoadTest();
+        List<Result> results = new ArrayList<>();
+        for (String mode : modes) {
+            ConfigurableApplicationContext context = BenchmarkApplication.start(Map.of(
+                    "server.port", 0,
+                    "virtual-threads.enabled", "virtual".equals(mode),
+                    "server.tomcat.max-connections", 20000,
+                    "server.tomcat.accept-count", 20000,
+                    "service-cache.max-size", 0,
+                    "sql-stats.enabled", false), WebApplicationType.SERVLET);
+            try {
+                URI baseUri = URI.create("http://localhost:"
+                        + context.getEnvironment().getProperty("local.server.port") + "/app/api/v1/user");
+                loadTest.run(baseUri, 100, WARMUP);
+                for (int clients : clientCounts) {
+                    Result result = loadTest.run(baseUri, clients, duration).withMode(mode);
+                    System.out.println(result);
+                    results.add(result);
+                }
+            } finally {
+                BenchmarkApplication.stop();
+            }
+        }
+        writeCsv(Path.of("target", "thread-mode-load-test.csv"), results);
+    }
+
+    private Result run(URI baseUri, int clients, Duration duration) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Client> runningClients = new ArrayList<>(clients);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(baseUri, deadline);
+            runningClients.add(client);
+            futures.add(client.next());
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        long[] latencies = runningClients.stream()
+                .flatMapToLong(client -> Arrays.stream(client.latencies, 0, client.count))
+                .sorted()
+                .toArray();
+        long errors = runningClients.stream().mapToLong(client -> client.errors).sum();
+        return new Result(null, clients, latencies.length, errors,
+                latencies.length / (double) duration.toSeconds(),
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1)] / 1e6;
+    }
+
+    private static void writeCsv(Path path, List<Result> results) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("mode,clients,requests,errors,throughputPerSecond,p50Ms,p99Ms,maxMs");
+            for (Result result : results) {
+                writer.printf("%s,%d,%d,%d,%.1f,%.2f,%.2f,%.2f%n", result.mode(), result.clients(),
+                        result.requests(), result.errors(), result.throughput(), result.p50Ms(),
+                        result.p99Ms(), result.maxNanos() / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Клиент выполняет запросы последовательно: создание пользователя, затем чтение, пока не истечёт время.
+     * Следующий запрос начинается в продолжении предыдущего, поэтому задержки пишутся без синхронизации.
+     */
+    private final class Client {
+        private final URI baseUri;
+        private final long deadline;
+        private long[] latencies = new long[256];
+        private int count;
+        private long errors;
+
+        private Client(URI baseUri, long deadline) {
+            this.baseUri = baseUri;
+            this.deadline = deadline;
+        }
+
+        private CompletableFuture<Void> next() {
+            if (System.nanoTime() >= deadline) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return send(HttpRequest.newBuilder(baseUri.resolve("user/create"))
+                    .header("Content-Type", "application/json")
+                    .header("rqid", UUID.randomUUID().toString())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(createBody()))
+                    .build())
+                    .thenCompose(userId -> userId == null
+                            ? CompletableFuture.completedFuture(null)
+                            : send(HttpRequest.newBuilder(baseUri.resolve("user/get/" + userId))
+                            .header("rqid", UUID.randomUUID().toString())
+                            .GET()
+                            .build()))
+                    .thenCompose(ignored -> next());
+        }
+
+        /**
+         * @return идентификатор пользователя из ответа или {@code null} при ошибке
+         */
+        private CompletableFuture<Integer> send(HttpRequest request) {
+            long start = System.nanoTime();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .handle((response, exc) -> {
+                        record(System.nanoTime() - start);
+                        if (exc != null || response.statusCode() != 200) {
+                            errors++;
+                            return null;
+                        }
+                        try {
+                            JsonNode userId = objectMapper.readTree(response.body()).get("userId");
+                            return userId == null ? null : userId.asInt();
+                        } catch (IOException parseExc) {
+                            errors++;
+                            return null;
+                        }
+                    });
+        }
+
+        private void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        private byte[] createBody() {
+            try {
+                return objectMapper.writeValueAsBytes(BenchmarkApplication.newUserBookRequest(BOOKS_PER_USER));
+            } catch (IOException exc) {
+                throw new IllegalStateException(exc);
+            }
+        }
+    }
+
+    private record Result(String mode, int clients, long requests, long errors, double throughput,
+                          double p50Ms, double p99Ms, long maxNanos) {
+
+        private Result withMode(String mode) {
+            return new Result(mode, clients, requests, errors, throughput, p50Ms, p99Ms, maxNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s clients=%-6d requests=%-8d errors=%-6d throughput=%.1f/s p50=%.2fms p99=%.2fms max=%.2fms",
+                    mode, clients, requests, errors, throughput, p50Ms, p99Ms, maxNanos / 1e6);
+        }
+    }
+}
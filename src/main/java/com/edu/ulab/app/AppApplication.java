@@ -2,8 +2,11 @@ package com.edu.ulab.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+@EnableScheduling
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class AppApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,16 @@
+package com.edu.ulab.app.config;
+
+/**
+ * Профили, выбирающие реализацию {@code UserService}/{@code BookService}. Без профиля {@link #STORAGE}
+ * используется PostgreSQL. Профиль {@link #FILE} включает {@link #STORAGE} и сохраняет данные в файлы.
+ * Профиль {@link #REACTIVE} заменяет сервлетный {@code /user} API неблокирующим на WebFlux и R2DBC.
+ */
+public final class BackendProfiles {
+    public static final String STORAGE = "storage";
+    public static final String FILE = "file";
+    public static final String DATABASE = "!" + STORAGE;
+    public static final String REACTIVE = "reactive";
+
+    private BackendProfiles() {
+    }
+}
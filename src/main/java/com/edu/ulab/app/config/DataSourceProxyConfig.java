@@ -0,0 +1,36 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.metrics.SqlStatementStatsListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает DataSource в datasource-proxy для подсчёта запросов по rqid, см. {@link SqlStatementStatsListener}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sql-stats.enabled", havingValue = "true")
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlStatementStatsDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder
+                            .create(dataSource)
+                            .name(beanName)
+                            .listener(new SqlStatementStatsListener())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
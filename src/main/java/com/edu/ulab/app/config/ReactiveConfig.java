@@ -0,0 +1,64 @@
+package com.edu.ulab.app.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * Пул соединений R2DBC для реактивного {@code /user} API.
+ * <p>
+ * Пул намеренно не объявлен бином {@code ConnectionFactory}: при таком бине Spring Boot не создаёт
+ * {@code DataSource}, а JPA и {@code JdbcTemplate} в этом профиле продолжают работать. По той же причине
+ * в {@link TransactionalOperator} передаётся свой {@link R2dbcTransactionManager}, а не бин менеджера транзакций.
+ * Сервер - Netty: без явного бина Spring Boot выбрал бы Tomcat, который нужен сервлетному варианту.
+ */
+@Configuration
+@Profile(BackendProfiles.REACTIVE)
+public class ReactiveConfig implements DisposableBean {
+    private final ConnectionPool connectionPool;
+
+    public ReactiveConfig(@Value("${reactive-datasource.url}") String url,
+                          @Value("${reactive-datasource.username}") String username,
+                          @Value("${reactive-datasource.password}") String password,
+                          @Value("${reactive-datasource.max-pool-size}") int maxPoolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .maxSize(maxPoolSize)
+                .build());
+    }
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
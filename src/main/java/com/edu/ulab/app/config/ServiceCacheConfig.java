@@ -0,0 +1,51 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Кэши сервисов пользователей и книг. Счётчики попаданий, промахов и вытеснений
+ * публикуются в actuator как метрики {@code cache.*} с тегом {@code cache}.
+ */
+@Configuration
+public class ServiceCacheConfig {
+    @Value("${service-cache.max-size}")
+    private long maxSize;
+
+    @Value("${service-cache.ttl}")
+    private Duration ttl;
+
+    @Bean
+    public Cache<Integer, UserDto> userCache(MeterRegistry meterRegistry) {
+        return monitoredCache(meterRegistry, "users");
+    }
+
+    @Bean
+    public Cache<Integer, List<Integer>> userBookIdsCache(MeterRegistry meterRegistry) {
+        return monitoredCache(meterRegistry, "userBookIds");
+    }
+
+    @Bean
+    public Cache<Integer, List<BookDto>> userBooksCache(MeterRegistry meterRegistry) {
+        return monitoredCache(meterRegistry, "userBooks");
+    }
+
+    private <V> Cache<Integer, V> monitoredCache(MeterRegistry meterRegistry, String name) {
+        Cache<Integer, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+}
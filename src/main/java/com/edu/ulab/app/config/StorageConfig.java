@@ -0,0 +1,35 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.storage.FileStorage;
+import com.edu.ulab.app.storage.Storage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@Profile(BackendProfiles.STORAGE)
+public class StorageConfig {
+    @Value("${storage.stripes}")
+    private int stripes;
+
+    @Bean
+    @Profile("!" + BackendProfiles.FILE)
+    public Storage storage() {
+        return new Storage(stripes);
+    }
+
+    @Bean
+    @Profile(BackendProfiles.FILE)
+    public FileStorage fileStorage(@Value("${file-storage.directory}") Path directory,
+                                   @Value("${file-storage.compaction-threshold}") DataSize compactionThreshold,
+                                   @Value("${file-storage.compaction-interval}") Duration compactionInterval)
+            throws IOException {
+        return new FileStorage(stripes, directory, compactionThreshold.toBytes(), compactionInterval);
+    }
+}
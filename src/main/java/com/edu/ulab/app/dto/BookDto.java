@@ -13,4 +13,12 @@ public class BookDto {
     private String title;
     private String author;
     private long pageCount;
+    /**
+     * Версия строки для оптимистической блокировки; {@code null}, если версия неизвестна.
+     */
+    private Integer version;
+
+    public BookDto(Integer id, Integer userId, String title, String author, long pageCount) {
+        this(id, userId, title, author, pageCount, null);
+    }
 }
@@ -12,4 +12,12 @@ public class UserDto {
     private String fullName;
     private String title;
     private int age;
+    /**
+     * Версия строки для оптимистической блокировки; {@code null}, если версия неизвестна.
+     */
+    private Integer version;
+
+    public UserDto(Integer id, String fullName, String title, int age) {
+        this(id, fullName, title, age, null);
+    }
 }
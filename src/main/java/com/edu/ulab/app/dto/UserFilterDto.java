@@ -0,0 +1,14 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserFilterDto {
+    private String title;
+    private Integer minAge;
+    private Integer maxAge;
+}
@@ -0,0 +1,20 @@
+package com.edu.ulab.app.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * Оставляет идентификатор, уже выданный сущности {@link com.edu.ulab.app.repository.SequenceIdAllocator}.
+ * Сущности без идентификатора получают его из той же последовательности оптимизатором pooled-lo Hibernate,
+ * блоки при этом не пересекаются с блоками аллокатора.
+ */
+public class AllocatedIdGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return id != null ? id : super.generate(session, object);
+    }
+}
@@ -6,6 +6,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 
 @Getter
@@ -15,8 +18,11 @@ import javax.persistence.*;
 @Table(name = "book", schema = "ulab_edu")
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence")
-    @SequenceGenerator(name = "sequence", sequenceName = "sequence", allocationSize = 100)
+    @GeneratedValue(generator = "sequence")
+    @GenericGenerator(name = "sequence", strategy = "com.edu.ulab.app.entity.AllocatedIdGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "sequence"),
+            @Parameter(name = "increment_size", value = "100"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Integer id;
 
     @Column(nullable = false)
@@ -28,6 +34,10 @@ public class Book {
     @Column(nullable = false)
     private long pageCount;
 
+    @Version
+    @Column(nullable = false)
+    private Integer version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "person_id", nullable = false)
     private Person person;
@@ -3,6 +3,9 @@ package com.edu.ulab.app.entity;
 
 import lombok.*;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.util.Set;
 
@@ -14,8 +17,11 @@ import java.util.Set;
 @Table(name = "person", schema = "ulab_edu")
 public class Person {
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence")
-    @SequenceGenerator(name = "sequence", sequenceName = "sequence", allocationSize = 100)
+    @GeneratedValue(generator = "sequence")
+    @GenericGenerator(name = "sequence", strategy = "com.edu.ulab.app.entity.AllocatedIdGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "sequence"),
+            @Parameter(name = "increment_size", value = "100"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Integer id;
 
     @Column(nullable = false)
@@ -27,6 +33,10 @@ public class Person {
     @Column(nullable = false)
     private int age;
 
+    @Version
+    @Column(nullable = false)
+    private Integer version;
+
 //    @Column(nullable = false)
 //    private int count;
 
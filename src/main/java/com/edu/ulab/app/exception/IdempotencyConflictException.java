@@ -0,0 +1,11 @@
+package com.edu.ulab.app.exception;
+
+/**
+ * Запрос пришёл с {@code rqid}, под которым уже выполнен запрос с другим телом.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,89 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разница между текущими книгами пользователя и книгами из запроса на обновление.
+ * Книги с одинаковым содержимым сохраняют свои идентификаторы, изменённые книги
+ * обновляются на месте, лишние удаляются, недостающие вставляются. Книга из запроса получает
+ * идентификатор и версию занятой ею книги, чтобы обновление проверило, что книгу не изменили после чтения.
+ */
+@Getter
+public class BookDiff {
+    private final List<BookDto> toInsert = new ArrayList<>();
+    private final List<BookDto> toUpdate = new ArrayList<>();
+    private final List<Integer> toDelete = new ArrayList<>();
+    private final List<BookDto> requestedBooks;
+
+    private BookDiff(List<BookDto> requestedBooks) {
+        this.requestedBooks = requestedBooks;
+    }
+
+    public static BookDiff of(List<BookDto> existingBooks, List<BookDto> requestedBooks) {
+        BookDiff diff = new BookDiff(requestedBooks);
+
+        Map<BookContent, Deque<BookDto>> existingByContent = new HashMap<>();
+        for (BookDto existingBook : existingBooks) {
+            existingByContent.computeIfAbsent(BookContent.of(existingBook), key -> new ArrayDeque<>())
+                    .add(existingBook);
+        }
+
+        List<BookDto> changedBooks = new ArrayList<>();
+        for (BookDto requestedBook : requestedBooks) {
+            Deque<BookDto> sameBooks = existingByContent.get(BookContent.of(requestedBook));
+            if (sameBooks != null && !sameBooks.isEmpty()) {
+                BookDto sameBook = sameBooks.poll();
+                requestedBook.setId(sameBook.getId());
+                requestedBook.setVersion(sameBook.getVersion());
+            } else {
+                changedBooks.add(requestedBook);
+            }
+        }
+
+        Iterator<BookDto> freeBooks = existingByContent.values().stream()
+                .flatMap(Deque::stream)
+                .iterator();
+        for (BookDto changedBook : changedBooks) {
+            if (freeBooks.hasNext()) {
+                BookDto freeBook = freeBooks.next();
+                changedBook.setId(freeBook.getId());
+                changedBook.setVersion(freeBook.getVersion());
+                diff.toUpdate.add(changedBook);
+            } else {
+                diff.toInsert.add(changedBook);
+            }
+        }
+        freeBooks.forEachRemaining(existingBook -> diff.toDelete.add(existingBook.getId()));
+        return diff;
+    }
+
+    /**
+     * Проставляет идентификаторы вставленных книг, возвращённые сервисом, в порядке {@link #getToInsert()}.
+     */
+    public void applyCreated(List<BookDto> createdBooks) {
+        for (int i = 0; i < toInsert.size(); i++) {
+            toInsert.get(i).setId(createdBooks.get(i).getId());
+        }
+    }
+
+    public List<Integer> getBookIds() {
+        return requestedBooks.stream()
+                .map(BookDto::getId)
+                .toList();
+    }
+
+    private record BookContent(String title, String author, long pageCount) {
+        static BookContent of(BookDto bookDto) {
+            return new BookContent(bookDto.getTitle(), bookDto.getAuthor(), bookDto.getPageCount());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.service.BookService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Отложенная запись книг с групповой фиксацией. Книги копятся в очереди, отдельный поток записывает
+ * их пачками до {@code batch-size} штук не реже раза в {@code max-delay}, каждую пачку одним
+ * {@link BookService#createBooks} в своей транзакции. Вызывающий получает идентификатор книги после коммита.
+ * <p>
+ * Очередь ограничена {@code capacity} книгами, включая записываемую пачку: когда места нет, вызов ждёт
+ * не дольше {@code enqueue-timeout} и получает {@link RejectedExecutionException}. Если пачка не записалась,
+ * её книги записываются по одной, и ошибку получают только те, что не записались сами; книга удалённого
+ * за это время владельца получает {@link NotFoundException}. При {@link Error} ошибку получает вся пачка,
+ * а поток записи продолжает работу.
+ * <p>
+ * При остановке приложения, уже после завершения HTTP-запросов, очередь дописывается до конца.
+ * Если режим выключен или запись остановлена, книга записывается сразу в потоке вызова.
+ */
+@Slf4j
+@Component
+public class BookWriteBehind implements SmartLifecycle {
+    /**
+     * Останавливается после веб-сервера, который при graceful shutdown дожидается текущих запросов.
+     */
+    private static final int PHASE = Integer.MAX_VALUE - 2048;
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private final BookService bookService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long enqueueTimeoutNanos;
+    private final Queue<PendingBook> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Semaphore capacity;
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    public BookWriteBehind(BookService bookService,
+                           ObjectProvider<PlatformTransactionManager> transactionManager,
+                           @Value("${book-write-behind.enabled}") boolean enabled,
+                           @Value("${book-write-behind.batch-size}") int batchSize,
+                           @Value("${book-write-behind.max-delay}") Duration maxDelay,
+                           @Value("${book-write-behind.capacity}") int capacity,
+                           @Value("${book-write-behind.enqueue-timeout}") Duration enqueueTimeout) {
+        if (capacity < batchSize) {
+            throw new IllegalArgumentException("Write-behind capacity " + capacity
+                    + " is less than batch size " + batchSize);
+        }
+        this.bookService = bookService;
+        PlatformTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager == null ? null : new TransactionTemplate(manager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.capacity = new Semaphore(capacity);
+    }
+
+    /**
+     * Ставит книгу в очередь на запись и возвращает её будущий идентификатор.
+     */
+    public CompletableFuture<Integer> createBook(BookDto bookDto) {
+        if (!running) {
+            return CompletableFuture.completedFuture(bookService.createBook(bookDto).getId());
+        }
+        acquireCapacity();
+        PendingBook book = new PendingBook(bookDto, new CompletableFuture<>());
+        queue.add(book);
+        if (queued.incrementAndGet() == batchSize) {
+            LockSupport.unpark(writer);
+        }
+        if (!running) {
+            // запись остановилась, пока книга вставала в очередь, дописываем сами
+            writeQueued();
+        }
+        return book.id();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "book-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Book write-behind started: batches of up to {} books every {} ms",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(maxDelayNanos));
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Book write-behind stopped, queue flushed");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void acquireCapacity() {
+        try {
+            if (!capacity.tryAcquire(enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("Book write-behind queue is full, try again later");
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for book write-behind queue");
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (queued.get() < batchSize) {
+                LockSupport.parkNanos(this, maxDelayNanos);
+            }
+            writeBatch();
+        }
+        writeQueued();
+    }
+
+    private void writeQueued() {
+        while (writeBatch() > 0) {
+            // пишем, пока очередь не опустеет
+        }
+    }
+
+    private int writeBatch() {
+        List<PendingBook> batch = new ArrayList<>(batchSize);
+        PendingBook book;
+        while (batch.size() < batchSize && (book = queue.poll()) != null) {
+            batch.add(book);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        queued.addAndGet(-batch.size());
+        try {
+            write(batch);
+        } finally {
+            capacity.release(batch.size());
+        }
+        return batch.size();
+    }
+
+    private void write(List<PendingBook> batch) {
+        try {
+            List<BookDto> created = inTransaction(() -> bookService.createBooks(batch.stream()
+                    .map(PendingBook::bookDto)
+                    .toList()));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).id().complete(created.get(i).getId());
+            }
+            log.info("Wrote {} books in one transaction", batch.size());
+        } catch (RuntimeException exc) {
+            if (batch.size() == 1) {
+                batch.get(0).id().completeExceptionally(translate(batch.get(0).bookDto(), exc));
+                return;
+            }
+            log.warn("Failed to write {} books in one transaction, writing them one by one: {}",
+                    batch.size(), exc.getMessage());
+            batch.forEach(book -> write(List.of(book)));
+        } catch (Throwable exc) {
+            log.error("Failed to write {} books", batch.size(), exc);
+            batch.forEach(book -> book.id().completeExceptionally(exc));
+        }
+    }
+
+    /**
+     * Нарушение внешнего ключа у одной книги означает, что её владельца уже нет.
+     */
+    private static RuntimeException translate(BookDto bookDto, RuntimeException exc) {
+        for (Throwable cause = exc; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && FOREIGN_KEY_VIOLATION.equals(sqlException.getSQLState())) {
+                return new NotFoundException("Person with ID: " + bookDto.getUserId() + "not found");
+            }
+        }
+        return exc;
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate == null ? action.get() : transactionTemplate.execute(status -> action.get());
+    }
+
+    private record PendingBook(BookDto bookDto, CompletableFuture<Integer> id) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.exception.IdempotencyConflictException;
+import com.edu.ulab.app.service.IdempotencyStore;
+import com.edu.ulab.app.service.IdempotencyStore.StoredResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет запрос с данным {@code rqid} не больше одного раза за {@code idempotency.ttl}.
+ * <p>
+ * Перед {@link IdempotencyStore} стоит ограниченный кэш в памяти: повтор, пришедший, пока первый запрос
+ * ещё выполняется, ждёт его результата, а не выполняется параллельно. Повтор на другом экземпляре приложения
+ * ловится хранилищем: действие сохраняет ответ в своей транзакции, вторая запись того же {@code rqid}
+ * дожидается коммита первой и откатывается, а клиент получает сохранённый ответ.
+ * <p>
+ * Ответ отдаётся только повтору с тем же отпечатком тела запроса, см. {@link #fingerprint}. Запрос с уже
+ * использованным {@code rqid} и другим телом получает {@link IdempotencyConflictException}.
+ */
+@Slf4j
+@Component
+public class IdempotentRequests {
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, PendingResponse> responses;
+
+    public IdempotentRequests(IdempotencyStore idempotencyStore,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.max-size}") long maxSize,
+                              @Value("${idempotency.ttl}") Duration ttl) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Отпечаток тела запроса: SHA-256 его JSON-представления.
+     */
+    public String fingerprint(Object request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException exc) {
+            throw new IllegalStateException("Can not fingerprint request " + request, exc);
+        }
+    }
+
+    /**
+     * Возвращает ответ на первый запрос с этим {@code requestId} или выполняет {@code action}. Действие само
+     * сохраняет ответ с {@code fingerprint} через {@link IdempotencyStore#save} в транзакции, в которой
+     * делает изменения.
+     */
+    public <T> T execute(String requestId, String fingerprint, Class<T> responseType, Supplier<T> action) {
+        if (!StringUtils.hasText(requestId)) {
+            return action.get();
+        }
+        PendingResponse response = new PendingResponse(fingerprint, new CompletableFuture<>());
+        PendingResponse inFlight = responses.asMap().putIfAbsent(requestId, response);
+        if (inFlight != null) {
+            checkFingerprint(requestId, fingerprint, inFlight.fingerprint());
+            log.info("Request {} is a repeat, waiting for the first response", requestId);
+            return responseType.cast(join(inFlight.response()));
+        }
+        try {
+            T result = idempotencyStore.find(requestId, responseType)
+                    .map(stored -> replay(requestId, fingerprint, stored))
+                    .orElseGet(() -> executeOnce(requestId, fingerprint, responseType, action));
+            response.response().complete(result);
+            return result;
+        } catch (RuntimeException exc) {
+            // неудачный запрос можно повторить
+            responses.asMap().remove(requestId, response);
+            response.response().completeExceptionally(exc);
+            throw exc;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval}")
+    public void deleteExpired() {
+        int deleted = idempotencyStore.deleteExpired();
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    private <T> T executeOnce(String requestId, String fingerprint, Class<T> responseType, Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (DuplicateKeyException exc) {
+            Optional<StoredResponse<T>> stored = idempotencyStore.find(requestId, responseType);
+            if (stored.isEmpty()) {
+                throw exc;
+            }
+            log.info("Request {} was completed concurrently, returning its response", requestId);
+            return replay(requestId, fingerprint, stored.get());
+        }
+    }
+
+    private static <T> T replay(String requestId, String fingerprint, StoredResponse<T> stored) {
+        // у записей до появления отпечатков сравнивать не с чем
+        if (stored.fingerprint() != null) {
+            checkFingerprint(requestId, fingerprint, stored.fingerprint());
+        }
+        return stored.response();
+    }
+
+    private static void checkFingerprint(String requestId, String fingerprint, String firstFingerprint) {
+        if (!firstFingerprint.equals(fingerprint)) {
+            throw new IdempotencyConflictException("Request " + requestId
+                    + " was already processed with a different body");
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> response) {
+        try {
+            return response.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exc;
+        }
+    }
+
+    private record PendingResponse(String fingerprint, CompletableFuture<Object> response) {
+    }
+}
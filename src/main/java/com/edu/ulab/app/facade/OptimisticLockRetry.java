@@ -0,0 +1,69 @@
+package com.edu.ulab.app.facade;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Повторяет операцию после конфликта версий. Число попыток ограничено, пауза перед попыткой выбирается
+ * случайно от нуля до экспоненциально растущей границы, чтобы столкнувшиеся запросы не повторялись разом.
+ * <p>
+ * Операция должна выполняться вне транзакции: тогда на время паузы соединение с базой не удерживается.
+ * Внутри транзакции повторять бессмысленно, она уже помечена на откат, поэтому конфликт пробрасывается сразу.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetry {
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticLockRetry(@Value("${optimistic-lock-retry.max-attempts}") int maxAttempts,
+                               @Value("${optimistic-lock-retry.initial-backoff}") Duration initialBackoff,
+                               @Value("${optimistic-lock-retry.max-backoff}") Duration maxBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException exc) {
+                if (attempt >= maxAttempts || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    log.warn("Giving up {} after {} attempts on optimistic lock conflict: {}",
+                            operation, attempt, exc.getMessage());
+                    throw exc;
+                }
+                long backoffMillis = backoffMillis(attempt);
+                log.info("Optimistic lock conflict in {}, attempt {} of {}, retrying in {} ms: {}",
+                        operation, attempt, maxAttempts, backoffMillis, exc.getMessage());
+                sleep(backoffMillis, exc);
+            }
+        }
+    }
+
+    /**
+     * Пауза перед повтором номер {@code attempt}: случайная в {@code [0, min(max, initial * 2^(attempt-1))]}.
+     */
+    long backoffMillis(int attempt) {
+        long bound = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private void sleep(long millis, OptimisticLockingFailureException conflict) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
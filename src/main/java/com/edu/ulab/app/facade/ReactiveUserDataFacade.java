@@ -0,0 +1,113 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.ReactiveBookService;
+import com.edu.ulab.app.service.ReactiveUserService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Реактивный аналог {@link UserDataFacade}. Изменения пользователя и его книг выполняются в одной
+ * транзакции R2DBC, а значит, на одном соединении.
+ */
+@Slf4j
+@Component
+@Profile(BackendProfiles.REACTIVE)
+public class ReactiveUserDataFacade {
+    private final ReactiveUserService userService;
+    private final ReactiveBookService bookService;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveUserDataFacade(ReactiveUserService userService,
+                                  ReactiveBookService bookService,
+                                  UserMapper userMapper,
+                                  BookMapper bookMapper,
+                                  TransactionalOperator transactionalOperator) {
+        this.userService = userService;
+        this.bookService = bookService;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public Mono<UserBookResponse> createUserWithBooks(UserBookRequest userBookRequest) {
+        log.info("Got user book create request: {}", userBookRequest);
+        UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
+        return userService.createUser(userDto)
+                .flatMap(createdUser -> bookService.createBooks(mapBooks(userBookRequest, createdUser.getId()))
+                        .map(BookDto::getId)
+                        .collectList()
+                        .map(bookIdList -> buildResponse(createdUser.getId(), bookIdList)))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<UserBookResponse> updateUserWithBooks(UserBookRequest userBookRequest, Integer id) {
+        log.info("Got user book update request: {}", userBookRequest);
+        UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
+        userDto.setId(id);
+        return userService.updateUser(userDto)
+                .flatMap(updatedUser -> userBookRequest.getBookRequests() == null
+                        ? bookService.getBookByUserId(id).map(BookDto::getId).collectList()
+                        : bookService.getBookByUserId(id).collectList()
+                        .flatMap(existingBooks -> applyBookDiff(BookDiff.of(existingBooks, mapBooks(userBookRequest, id)))))
+                .map(bookIdList -> buildResponse(id, bookIdList))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<UserBookResponse> getUserWithBooks(Integer userId) {
+        log.info("Got get user {} with books request", userId);
+        return userService.getUserBookIds(userId)
+                .map(bookIdList -> buildResponse(userId, bookIdList));
+    }
+
+    public Mono<Void> deleteUserWithBooks(Integer userId) {
+        log.info("Got delete user {} with books request", userId);
+        return userService.deleteUserById(userId);
+    }
+
+    private Mono<List<Integer>> applyBookDiff(BookDiff bookDiff) {
+        log.info("Book diff: insert {}, update {}, delete {}",
+                bookDiff.getToInsert().size(), bookDiff.getToUpdate().size(), bookDiff.getToDelete().size());
+        return bookService.deleteBooksByIds(bookDiff.getToDelete())
+                .thenMany(bookService.updateBooks(bookDiff.getToUpdate()))
+                .thenMany(bookService.createBooks(bookDiff.getToInsert()))
+                .collectList()
+                .map(createdBooks -> {
+                    bookDiff.applyCreated(createdBooks);
+                    return bookDiff.getBookIds();
+                });
+    }
+
+    private List<BookDto> mapBooks(UserBookRequest userBookRequest, Integer userId) {
+        if (userBookRequest.getBookRequests() == null) {
+            return List.of();
+        }
+        return userBookRequest.getBookRequests()
+                .stream()
+                .filter(Objects::nonNull)
+                .map(bookMapper::bookRequestToBookDto)
+                .peek(bookDto -> bookDto.setUserId(userId))
+                .toList();
+    }
+
+    private static UserBookResponse buildResponse(Integer userId, List<Integer> bookIdList) {
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(bookIdList)
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.edu.ulab.app.facade;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединяет одновременные загрузки по одному ключу: первый вызов выполняет загрузку, остальные ждут её
+ * результата или исключения. Ключ удаляется сразу по завершении, так что следующий вызов загружает
+ * данные заново и устаревших ответов не бывает.
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error exc) {
+            call.completeExceptionally(exc);
+            throw exc;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (exc.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw exc;
+        }
+    }
+}
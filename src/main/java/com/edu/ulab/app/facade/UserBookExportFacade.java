@@ -0,0 +1,51 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.service.UserExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Потоковая выгрузка всех пользователей с книгами в NDJSON: каждая запись сериализуется
+ * и уходит в поток сразу после чтения из курсора.
+ */
+@Slf4j
+@Component
+public class UserBookExportFacade {
+    private final UserExportService userExportService;
+    private final ObjectWriter userBooksWriter;
+
+    public UserBookExportFacade(UserExportService userExportService,
+                                ObjectMapper objectMapper) {
+        this.userExportService = userExportService;
+        this.userBooksWriter = objectMapper.writerFor(UserBooksDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+    }
+
+    public void exportUsersWithBooks(OutputStream outputStream) throws IOException {
+        log.info("Got export users with books request");
+        SequenceWriter sequenceWriter = userBooksWriter.writeValues(outputStream);
+        try {
+            userExportService.exportUsersWithBooks(userBooks -> {
+                try {
+                    sequenceWriter.write(userBooks);
+                } catch (IOException exc) {
+                    throw new UncheckedIOException(exc);
+                }
+            });
+        } catch (UncheckedIOException exc) {
+            throw exc.getCause();
+        } finally {
+            sequenceWriter.close();
+        }
+    }
+}
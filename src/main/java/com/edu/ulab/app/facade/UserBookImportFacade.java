@@ -0,0 +1,111 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.ImportChunkResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserImportResponse;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый импорт пользователей с книгами из NDJSON. Записи читаются по одной и пишутся
+ * пачками по {@code user-import.chunk-size}, поэтому в памяти одновременно находится не больше одной пачки.
+ * На неправильной записи импорт останавливается: уже прочитанные записи пишутся, она сама считается неудачной.
+ */
+@Slf4j
+@Component
+public class UserBookImportFacade {
+    private final UserDataFacade userDataFacade;
+    private final ObjectReader userBookRequestReader;
+    private final int chunkSize;
+
+    public UserBookImportFacade(UserDataFacade userDataFacade,
+                                ObjectMapper objectMapper,
+                                @Value("${user-import.chunk-size}") int chunkSize) {
+        this.userDataFacade = userDataFacade;
+        this.userBookRequestReader = objectMapper.readerFor(UserBookRequest.class);
+        this.chunkSize = chunkSize;
+    }
+
+    public UserImportResponse importUsersWithBooks(InputStream inputStream) throws IOException {
+        List<ImportChunkResponse> chunkResponses = new ArrayList<>();
+        List<UserBookRequest> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<UserBookRequest> requests = userBookRequestReader.readValues(inputStream)) {
+            while (requests.hasNextValue()) {
+                chunk.add(requests.nextValue());
+                if (chunk.size() == chunkSize) {
+                    chunkResponses.add(writeChunk(chunkResponses.size(), chunk));
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException exc) {
+            log.error("Stopped import on malformed record: {}", exc.getOriginalMessage());
+            if (!chunk.isEmpty()) {
+                chunkResponses.add(writeChunk(chunkResponses.size(), chunk));
+                chunk.clear();
+            }
+            // разбор дальше неправильной записи не продолжается, она сама - одна неудачная запись
+            chunkResponses.add(ImportChunkResponse.builder()
+                    .chunk(chunkResponses.size())
+                    .records(1)
+                    .userIdList(List.of())
+                    .errorMessage(malformedRecordMessage(exc))
+                    .build());
+        }
+        if (!chunk.isEmpty()) {
+            chunkResponses.add(writeChunk(chunkResponses.size(), chunk));
+        }
+
+        UserImportResponse response = UserImportResponse.builder()
+                .importedUsers(chunkResponses.stream().mapToInt(chunkResponse -> chunkResponse.getUserIdList().size()).sum())
+                .failedRecords(chunkResponses.stream()
+                        .filter(chunkResponse -> chunkResponse.getErrorMessage() != null)
+                        .mapToInt(ImportChunkResponse::getRecords)
+                        .sum())
+                .chunks(chunkResponses)
+                .build();
+        log.info("Imported {} users in {} chunks, failed records: {}",
+                response.getImportedUsers(), chunkResponses.size(), response.getFailedRecords());
+        return response;
+    }
+
+    private static String malformedRecordMessage(JsonProcessingException exc) {
+        JsonLocation location = exc.getLocation();
+        String position = location == null ? "" : " at line " + location.getLineNr();
+        return "Malformed record" + position + ", import stopped: " + exc.getOriginalMessage();
+    }
+
+    private ImportChunkResponse writeChunk(int chunkNumber, List<UserBookRequest> chunk) {
+        try {
+            List<Integer> userIds = userDataFacade.createUsersWithBooks(chunk)
+                    .stream()
+                    .map(UserBookResponse::getUserId)
+                    .toList();
+            log.info("Imported chunk {} with {} users", chunkNumber, userIds.size());
+            return ImportChunkResponse.builder()
+                    .chunk(chunkNumber)
+                    .records(chunk.size())
+                    .userIdList(userIds)
+                    .build();
+        } catch (RuntimeException exc) {
+            log.error("Failed to import chunk {}: {}", chunkNumber, exc.getMessage());
+            return ImportChunkResponse.builder()
+                    .chunk(chunkNumber)
+                    .records(chunk.size())
+                    .userIdList(List.of())
+                    .errorMessage(exc.getMessage())
+                    .build();
+        }
+    }
+}
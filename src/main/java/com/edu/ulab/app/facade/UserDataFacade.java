@@ -2,53 +2,171 @@ package com.edu.ulab.app.facade;
 
 import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.dto.UserDto;
-import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.dto.UserFilterDto;
+import com.edu.ulab.app.exception.NotValidException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.metrics.FacadeMetrics;
 
-import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
-import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.IdempotencyStore;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.validation.BookValid;
+import com.edu.ulab.app.web.request.BookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBatchResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
 public class UserDataFacade {
-    private final UserServiceImplTemplate userService;
-    private final BookServiceImplTemplate bookService;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final UserService userService;
+    private final BookService bookService;
     private final UserMapper userMapper;
     private final BookMapper bookMapper;
+    private final FacadeMetrics facadeMetrics;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final IdempotencyStore idempotencyStore;
+    private final UserVersions userVersions;
+    private final BookWriteBehind bookWriteBehind;
+    /**
+     * У in-memory хранилища нет менеджера транзакций, тогда операции выполняются без транзакции.
+     */
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * Одновременные чтения одного пользователя делят один запрос к базе.
+     */
+    private final SingleFlight<Integer, List<Integer>> userBookIdsLoads = new SingleFlight<>();
 
-    public UserDataFacade(UserServiceImplTemplate userService,
-                          BookServiceImplTemplate bookService,
+    public UserDataFacade(UserService userService,
+                          BookService bookService,
                           UserMapper userMapper,
-                          BookMapper bookMapper) {
+                          BookMapper bookMapper,
+                          FacadeMetrics facadeMetrics,
+                          OptimisticLockRetry optimisticLockRetry,
+                          IdempotencyStore idempotencyStore,
+                          UserVersions userVersions,
+                          BookWriteBehind bookWriteBehind,
+                          ObjectProvider<PlatformTransactionManager> transactionManager) {
         this.userService = userService;
         this.bookService = bookService;
         this.userMapper = userMapper;
         this.bookMapper = bookMapper;
+        this.facadeMetrics = facadeMetrics;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.idempotencyStore = idempotencyStore;
+        this.userVersions = userVersions;
+        this.bookWriteBehind = bookWriteBehind;
+        PlatformTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager == null ? null : new TransactionTemplate(manager);
     }
 
+    /**
+     * Создаёт пользователя с книгами в одной транзакции. Идентификаторы выдаются заранее, поэтому
+     * пользователь и пакет его книг вставляются без возврата сгенерированных ключей.
+     */
     public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
+        return createUserWithBooks(userBookRequest, null, null);
+    }
+
+    /**
+     * Создаёт пользователя с книгами и в той же транзакции сохраняет ответ и отпечаток запроса под
+     * {@code requestId}, чтобы повтор запроса получил его из {@link IdempotencyStore}, см. {@link IdempotentRequests}.
+     * Таймер снаружи транзакции, поэтому учитывает и коммит.
+     */
+    public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest, String requestId, String fingerprint) {
+        return facadeMetrics.record("createUserWithBooks", () -> inTransaction(() -> {
+            UserBookResponse response = doCreateUserWithBooks(userBookRequest);
+            if (StringUtils.hasText(requestId)) {
+                idempotencyStore.save(requestId, fingerprint, response);
+            }
+            return response;
+        }));
+    }
+
+    /**
+     * Добавляет книгу пользователю через {@link BookWriteBehind}: ответ готов, когда пачка с книгой записана.
+     * Книга и её владелец проверяются сразу, чтобы неверный запрос не попадал в пачку и не ронял её целиком.
+     */
+    public CompletableFuture<UserBookResponse> addBookToUser(Integer userId, BookRequest bookRequest) {
+        log.info("Got add book request for user {}: {}", userId, bookRequest);
+        BookDto bookDto = bookMapper.bookRequestToBookDto(bookRequest);
+        bookDto.setUserId(userId);
+        if (userId == null || !BookValid.isValidBook(bookDto)) {
+            throw new NotValidException("Not valid:  " + bookDto);
+        }
+        userService.getUserById(userId);
+        return bookWriteBehind.createBook(bookDto)
+                .thenApply(bookId -> {
+                    userVersions.bump(userId);
+                    return UserBookResponse.builder()
+                            .userId(userId)
+                            .booksIdList(List.of(bookId))
+                            .build();
+                });
+    }
+
+    /**
+     * Обновляет пользователя с книгами. Каждая попытка выполняется в своей транзакции, а повтор после конфликта
+     * версий - снаружи, см. {@link OptimisticLockRetry}: неудачная попытка откатывается целиком.
+     */
+    public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest, Integer id) {
+        return facadeMetrics.record("updateUserWithBooks", () -> optimisticLockRetry.execute("updateUserWithBooks",
+                () -> doUpdateUserWithBooks(userBookRequest, id)));
+    }
+
+    /**
+     * Версия пользователя с книгами для ETag, берётся из памяти без обращения к базе, см. {@link UserVersions}.
+     */
+    public String getUserWithBooksVersion(Integer userId) {
+        return userVersions.current(userId);
+    }
+
+    public UserBookResponse getUserWithBooks(Integer userId) {
+        return facadeMetrics.record("getUserWithBooks", () -> doGetUserWithBooks(userId));
+    }
+
+    public void deleteUserWithBooks(Integer userId) {
+        facadeMetrics.record("deleteUserWithBooks", () -> doDeleteUserWithBooks(userId));
+    }
+
+    private UserBookResponse doCreateUserWithBooks(UserBookRequest userBookRequest) {
         log.info("Got user book create request: {}", userBookRequest);
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
         log.info("Mapped user request: {}", userDto);
 
         UserDto createdUser = userService.createUser(userDto);
         log.info("Created user: {}", createdUser);
+        userVersions.bump(createdUser.getId());
 
-        List<Integer> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> bookDtoList = userBookRequest.getBookRequests()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
                 .peek(bookDto -> bookDto.setUserId(createdUser.getId()))
                 .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
+                .toList();
+        List<Integer> bookIdList = bookService.createBooks(bookDtoList)
+                .stream()
                 .peek(createdBook -> log.info("Created book: {}", createdBook))
                 .map(BookDto::getId)
                 .toList();
@@ -60,7 +178,73 @@ public class UserDataFacade {
                 .build();
     }
 
-    public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest, Integer id) {
+    /**
+     * Создаёт пачку пользователей с книгами в одной транзакции: один пакетный INSERT пользователей
+     * и один пакетный INSERT всех их книг.
+     */
+    @Transactional
+    public List<UserBookResponse> createUsersWithBooks(List<UserBookRequest> userBookRequests) {
+        List<UserDto> createdUsers = userService.createUsers(userBookRequests.stream()
+                .map(userBookRequest -> userMapper.userRequestToUserDto(userBookRequest.getUserRequest()))
+                .toList());
+
+        List<BookDto> bookDtoList = new ArrayList<>();
+        int[] bookCounts = new int[userBookRequests.size()];
+        for (int i = 0; i < userBookRequests.size(); i++) {
+            List<BookRequest> bookRequests = userBookRequests.get(i).getBookRequests();
+            if (bookRequests == null) {
+                continue;
+            }
+            Integer userId = createdUsers.get(i).getId();
+            for (BookRequest bookRequest : bookRequests) {
+                if (bookRequest != null) {
+                    BookDto bookDto = bookMapper.bookRequestToBookDto(bookRequest);
+                    bookDto.setUserId(userId);
+                    bookDtoList.add(bookDto);
+                    bookCounts[i]++;
+                }
+            }
+        }
+        List<BookDto> createdBooks = bookService.createBooks(bookDtoList);
+        createdUsers.forEach(createdUser -> userVersions.bump(createdUser.getId()));
+
+        List<UserBookResponse> responses = new ArrayList<>(createdUsers.size());
+        int bookIndex = 0;
+        for (int i = 0; i < createdUsers.size(); i++) {
+            responses.add(UserBookResponse.builder()
+                    .userId(createdUsers.get(i).getId())
+                    .booksIdList(createdBooks.subList(bookIndex, bookIndex + bookCounts[i])
+                            .stream()
+                            .map(BookDto::getId)
+                            .toList())
+                    .build());
+            bookIndex += bookCounts[i];
+        }
+        log.info("Created {} users with {} books", createdUsers.size(), createdBooks.size());
+        return responses;
+    }
+
+    private UserBookResponse doUpdateUserWithBooks(UserBookRequest userBookRequest, Integer id) {
+        if (transactionTemplate == null) {
+            try {
+                return updateUserAndBooks(userBookRequest, id);
+            } finally {
+                // без транзакции шаги неудачной попытки уже применены
+                userVersions.bump(id);
+            }
+        }
+        return inTransaction(() -> {
+            UserBookResponse response = updateUserAndBooks(userBookRequest, id);
+            userVersions.bump(id);
+            return response;
+        });
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate == null ? action.get() : transactionTemplate.execute(status -> action.get());
+    }
+
+    private UserBookResponse updateUserAndBooks(UserBookRequest userBookRequest, Integer id) {
         log.info("Got user book update request in updateUserWithBooks(): {}", userBookRequest);
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
         userDto.setId(id);
@@ -70,51 +254,106 @@ public class UserDataFacade {
 
         List<Integer> bookIdList;
         if (userBookRequest.getBookRequests() != null) {
-            bookService.deleteBooksByUserId(userDto.getId());
-            bookIdList = userBookRequest.getBookRequests()
+            List<BookDto> requestedBooks = userBookRequest.getBookRequests()
                     .stream()
                     .filter(Objects::nonNull)
                     .map(bookMapper::bookRequestToBookDto)
                     .peek(bookDto -> bookDto.setUserId(userDto.getId()))
                     .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                    .map(bookService::createBook)
-                    .peek(createBook -> log.info("Create book: {}", createBook))
-                    .map(BookDto::getId)
                     .toList();
+            BookDiff bookDiff = BookDiff.of(bookService.getBookByUserId(userDto.getId()), requestedBooks);
+            log.info("Book diff for user {}: insert {}, update {}, delete {}", userDto.getId(),
+                    bookDiff.getToInsert().size(), bookDiff.getToUpdate().size(), bookDiff.getToDelete().size());
+
+            bookService.deleteBooksByIds(bookDiff.getToDelete());
+            bookService.updateBooks(bookDiff.getToUpdate());
+            bookDiff.applyCreated(bookService.createBooks(bookDiff.getToInsert()));
+            bookIdList = bookDiff.getBookIds();
             log.info("Updated  book ids: {}", bookIdList);
+        } else {
+            bookIdList = bookService.getBookByUserId(userDto.getId())
+                    .stream()
+                    .map(BookDto::getId)
+                    .toList();
         }
-        bookIdList = bookService.getBookByUserId(userDto.getId())
-                .stream()
-                .map(BookDto::getId)
-                .toList();
         return UserBookResponse.builder()
                 .userId(update.getId())
                 .booksIdList(bookIdList)
                 .build();
     }
 
-    public UserBookResponse getUserWithBooks(Integer userId) {
+    private UserBookResponse doGetUserWithBooks(Integer userId) {
         log.info("Got get user {} with books request", userId);
-        UserDto userDto = userService.getUserById(userId);
-        if (userDto == null) {
-            throw new NotFoundException("not found user with ID: " + userId);
-        }
-        log.info("User in getUserWithBooks(): {}", userDto);
-        List<Integer> bookIdList = bookService.getBookByUserId(userDto.getId())
-                .stream()
-                .map(BookDto::getId).toList();
+        List<Integer> bookIdList = userBookIdsLoads.load(userId, () -> userService.getUserBookIds(userId));
         log.info("Collected bookIdList in getUserWithBooks(): {}", bookIdList);
 
         return UserBookResponse.builder()
-                .userId(userDto.getId())
+                .userId(userId)
                 .booksIdList(bookIdList)
                 .build();
     }
 
-    public void deleteUserWithBooks(Integer userId) {
+    /**
+     * Пользователи с книгами по списку идентификаторов: один запрос пользователей и один запрос их книг.
+     * Отсутствующие пользователи возвращаются в {@link UserBatchResponse#getNotFoundIds()}, а не исключением.
+     */
+    public UserBatchResponse getUsersWithBooks(List<Integer> userIds) {
+        log.info("Got get users {} with books request", userIds);
+        if (userIds.isEmpty() || userIds.size() > MAX_PAGE_SIZE) {
+            throw new NotValidException("Number of user IDs must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (userIds.contains(null)) {
+            throw new NotValidException("ID can not be null");
+        }
+        List<Integer> distinctIds = userIds.stream().distinct().toList();
+        List<Integer> foundIds = userService.getUsersByIds(distinctIds)
+                .stream()
+                .map(UserDto::getId)
+                .toList();
+        Map<Integer, List<Integer>> bookIds = foundIds.isEmpty() ? Map.of() : bookService.getBookIdsByUserIds(foundIds);
+
+        Set<Integer> found = new HashSet<>(foundIds);
+        List<UserBookResponse> users = new ArrayList<>(foundIds.size());
+        List<Integer> notFoundIds = new ArrayList<>();
+        for (Integer userId : distinctIds) {
+            if (found.contains(userId)) {
+                users.add(UserBookResponse.builder()
+                        .userId(userId)
+                        .booksIdList(bookIds.getOrDefault(userId, List.of()))
+                        .build());
+            } else {
+                notFoundIds.add(userId);
+            }
+        }
+        log.info("Found {} users, not found IDs {}", users.size(), notFoundIds);
+        return UserBatchResponse.builder()
+                .users(users)
+                .notFoundIds(notFoundIds)
+                .build();
+    }
+
+    public UserPageResponse listUsers(UserFilterDto filter, Integer afterId, int limit) {
+        log.info("Got list users request: filter {}, after ID {}, limit {}", filter, afterId, limit);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new NotValidException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (filter.getMinAge() != null && filter.getMaxAge() != null && filter.getMinAge() > filter.getMaxAge()) {
+            throw new NotValidException("minAge can not be greater than maxAge");
+        }
+        List<UserDto> users = userService.findUsers(filter, afterId, limit);
+        return UserPageResponse.builder()
+                .users(users)
+                .nextAfterId(users.size() == limit ? users.get(users.size() - 1).getId() : null)
+                .build();
+    }
+
+    private void doDeleteUserWithBooks(Integer userId) {
         log.info("Got delete user {} with books request", userId);
-        bookService.deleteBooksByUserId(userId);
-        userService.deleteUserById(userId);
+        try {
+            userService.deleteUserById(userId);
+        } finally {
+            userVersions.bump(userId);
+        }
         log.info("Deleted user with ID={}", userId);
     }
 }
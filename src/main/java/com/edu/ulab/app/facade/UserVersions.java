@@ -0,0 +1,66 @@
+package com.edu.ulab.app.facade;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии пользователей с книгами для ETag. Версия меняется после коммита любого изменения пользователя
+ * через {@link UserDataFacade}, поэтому совпадение ETag означает, что ответ не изменился.
+ * <p>
+ * Версии живут в памяти экземпляра столько же, сколько записи кэшей сервисов ({@code service-cache.ttl}),
+ * и изменения на другом экземпляре видны не позже, чем в этих кэшах. Префикс экземпляра не даёт совпасть
+ * версиям разных экземпляров и перезапусков. Вытесненная версия выдаётся заново, клиент просто перечитает ответ.
+ */
+@Component
+public class UserVersions {
+    private final String instancePrefix = Long.toHexString(ThreadLocalRandom.current().nextLong()) + "-";
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<Integer, String> versions;
+
+    public UserVersions(@Value("${service-cache.max-size}") long maxSize,
+                        @Value("${service-cache.ttl}") Duration ttl) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Текущая версия пользователя; если её нет, выдаётся новая. Берётся до чтения данных: изменение
+     * во время чтения сменит версию, и ответ с устаревшей версией клиент перечитает.
+     */
+    public String current(Integer userId) {
+        return versions.get(userId, id -> nextVersion());
+    }
+
+    /**
+     * Меняет версию пользователя после коммита текущей транзакции, а без транзакции - сразу. В транзакции версия
+     * меняется в {@code afterCompletion}, после повторного вытеснения кэшей сервисов, которое упорядочено раньше.
+     */
+    public void bump(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        versions.put(userId, nextVersion());
+                    }
+                }
+            });
+        } else {
+            versions.put(userId, nextVersion());
+        }
+    }
+
+    private String nextVersion() {
+        return instancePrefix + sequence.incrementAndGet();
+    }
+}
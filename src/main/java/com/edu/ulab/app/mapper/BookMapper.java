@@ -9,11 +9,16 @@ import org.mapstruct.Mapping;
 @Mapper(componentModel = "spring")
 public interface BookMapper {
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "version", ignore = true)
     BookDto bookRequestToBookDto(BookRequest bookRequest);
 
     BookRequest bookDtoToBookRequest(BookDto bookDto);
 
+    @Mapping(target = "person", ignore = true)
     Book bookDtoToBook(BookDto bookDto);
 
+    @Mapping(target = "userId", source = "person.id")
     BookDto bookToBookDto(Book book);
 }
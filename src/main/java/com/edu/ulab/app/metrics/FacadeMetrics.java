@@ -0,0 +1,63 @@
+package com.edu.ulab.app.metrics;
+
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Таймер {@code user.facade} с тегами {@code operation} и {@code outcome}
+ * ({@code success}, {@code NotFoundException}, {@code NotValidException}, {@code conflict}, {@code error}).
+ * Гистограмма перцентилей включается в application.yaml.
+ */
+@Component
+public class FacadeMetrics {
+    public static final String TIMER_NAME = "user.facade";
+
+    private final MeterRegistry meterRegistry;
+
+    public FacadeMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T record(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return action.get();
+        } catch (RuntimeException exc) {
+            outcome = outcome(exc);
+            throw exc;
+        } finally {
+            sample.stop(Timer.builder(TIMER_NAME)
+                    .description("UserDataFacade operation latency")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private String outcome(RuntimeException exc) {
+        if (exc instanceof NotFoundException) {
+            return NotFoundException.class.getSimpleName();
+        }
+        if (exc instanceof NotValidException) {
+            return NotValidException.class.getSimpleName();
+        }
+        if (exc instanceof OptimisticLockingFailureException) {
+            return "conflict";
+        }
+        return "error";
+    }
+}
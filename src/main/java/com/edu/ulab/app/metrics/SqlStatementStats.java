@@ -0,0 +1,52 @@
+package com.edu.ulab.app.metrics;
+
+import lombok.Getter;
+import net.ttddyy.dsproxy.QueryType;
+
+/**
+ * Счётчики SQL-запросов текущего HTTP-запроса. Собираются в потоке обработки запроса
+ * между {@link #begin()} и {@link #end()}, вне этого интервала запросы не учитываются.
+ */
+@Getter
+public class SqlStatementStats {
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    private int selectCount;
+    private int insertCount;
+    private int updateCount;
+    private int deleteCount;
+    private int otherCount;
+    private long elapsedMillis;
+
+    public static void begin() {
+        CURRENT.set(new SqlStatementStats());
+    }
+
+    public static SqlStatementStats current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStatementStats end() {
+        SqlStatementStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    void record(QueryType queryType) {
+        switch (queryType) {
+            case SELECT -> selectCount++;
+            case INSERT -> insertCount++;
+            case UPDATE -> updateCount++;
+            case DELETE -> deleteCount++;
+            default -> otherCount++;
+        }
+    }
+
+    void addElapsed(long elapsedMillis) {
+        this.elapsedMillis += elapsedMillis;
+    }
+
+    public int getTotalCount() {
+        return selectCount + insertCount + updateCount + deleteCount + otherCount;
+    }
+}
@@ -0,0 +1,31 @@
+package com.edu.ulab.app.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+
+import java.util.List;
+
+/**
+ * Учитывает каждое выполнение JDBC-запроса в {@link SqlStatementStats} текущего потока.
+ * Пакет из нескольких наборов параметров считается одним запросом - это один сетевой вызов.
+ */
+public class SqlStatementStatsListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SqlStatementStats stats = SqlStatementStats.current();
+        if (stats == null) {
+            return;
+        }
+        for (QueryInfo queryInfo : queryInfoList) {
+            stats.record(QueryUtils.getQueryType(queryInfo.getQuery()));
+        }
+        stats.addElapsed(execInfo.getElapsedTime());
+    }
+}
@@ -1,23 +1,55 @@
 package com.edu.ulab.app.repository;
 
+import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookRepository extends CrudRepository<Book, Long> {
+public interface BookRepository extends CrudRepository<Book, Integer> {
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select b from Book b where b.id = :id")
-    Optional<Book> findByIdForUpdate(int id);
+    /**
+     * Сбрасывает изменения в базу сразу, чтобы конфликт версий проявился здесь исключением Spring, а не при коммите.
+     */
+    void flush();
 
-    List<Book> deleteByPersonId(Integer userId);
+    /**
+     * Удаляет книги пользователя одним запросом, не загружая их в контекст персистентности.
+     */
+    @Modifying
+    @Query("delete from Book b where b.person.id = :userId")
+    int deleteByPersonId(Integer userId);
 
-    List<Book> findAllByPersonId(Integer userId);
+    /**
+     * Книга сразу в виде {@link BookDto}, без загрузки сущности и прокси владельца в контекст персистентности.
+     */
+    @Query("select new com.edu.ulab.app.dto.BookDto(b.id, b.person.id, b.title, b.author, b.pageCount, b.version) "
+            + "from Book b where b.id = :id")
+    Optional<BookDto> findDtoById(Integer id);
+
+    /**
+     * Книги пользователя в виде {@link BookDto} по возрастанию идентификатора, без загрузки сущностей.
+     */
+    @Query("select new com.edu.ulab.app.dto.BookDto(b.id, b.person.id, b.title, b.author, b.pageCount, b.version) "
+            + "from Book b where b.person.id = :userId order by b.id")
+    List<BookDto> findDtosByPersonId(Integer userId);
+
+    List<Book> findAllByIdIn(Collection<Integer> ids);
+
+    /**
+     * Пары (идентификатор владельца, идентификатор книги) книг переданных пользователей, упорядоченные
+     * по владельцу и книге, как индекс {@code (person_id, id)}.
+     */
+    @Query("select b.person.id, b.id from Book b where b.person.id in :userIds order by b.person.id, b.id")
+    List<Object[]> findIdsByPersonIdIn(Collection<Integer> userIds);
+
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteAllByIdIn(Collection<Integer> ids);
 }
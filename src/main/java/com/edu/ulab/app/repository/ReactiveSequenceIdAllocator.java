@@ -0,0 +1,42 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Неблокирующий вариант {@link SequenceIdAllocator} для R2DBC. Блоки pooled-lo общие с JDBC, новые блоки
+ * запрашиваются через {@link DatabaseClient}, поэтому вставка не тратит на каждый идентификатор целый блок.
+ */
+@Component
+@Profile(BackendProfiles.REACTIVE)
+public class ReactiveSequenceIdAllocator {
+    private static final String NEXT_BLOCKS_SQL = "SELECT nextval('sequence') FROM generate_series(1, $1)";
+
+    private final SequenceIdAllocator blocks;
+    private final DatabaseClient databaseClient;
+
+    public ReactiveSequenceIdAllocator(SequenceIdAllocator blocks, DatabaseClient databaseClient) {
+        this.blocks = blocks;
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<List<Integer>> nextIds(int count) {
+        return Mono.defer(() -> {
+            List<Integer> ids = blocks.takeReserved(count);
+            if (ids.size() == count) {
+                return Mono.just(ids);
+            }
+            return databaseClient.sql(NEXT_BLOCKS_SQL)
+                    .bind(0, SequenceIdAllocator.blocksFor(count - ids.size()))
+                    .map(row -> row.get(0, Long.class))
+                    .all()
+                    .collectList()
+                    .map(blockStarts -> blocks.takeFromNewBlocks(ids, count, blockStarts));
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Выдаёт идентификаторы пользователей и книг из последовательности {@code sequence} блоками по схеме pooled-lo:
+ * значение {@code nextval} - начало блока {@code [value, value + BLOCK_SIZE)}, который целиком принадлежит
+ * получившему его. Поэтому шаг последовательности равен {@link #BLOCK_SIZE}, как и {@code increment_size}
+ * генератора в сущностях, а все, кто берёт значения из {@code sequence}, не пересекаются.
+ * <p>
+ * Идентификаторы известны до INSERT, поэтому пользователь и его книги вставляются пакетами без возврата
+ * сгенерированных ключей. За последовательностью база опрашивается раз в {@link #BLOCK_SIZE} идентификаторов,
+ * и не под блокировкой: поток, ждущий соединения из пула, не должен задерживать тех, кто его держит.
+ * {@link ReactiveSequenceIdAllocator} выдаёт идентификаторы из тех же блоков.
+ */
+@Slf4j
+@Component
+@Profile(BackendProfiles.DATABASE)
+public class SequenceIdAllocator {
+    public static final int BLOCK_SIZE = 100;
+
+    private static final String NEXT_BLOCKS_SQL = "SELECT nextval('sequence') FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Lock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Integer nextId() {
+        return nextIds(1).get(0);
+    }
+
+    public List<Integer> nextIds(int count) {
+        List<Integer> ids = takeReserved(count);
+        if (ids.size() == count) {
+            return ids;
+        }
+        List<Long> blockStarts = jdbcTemplate.queryForList(NEXT_BLOCKS_SQL, Long.class, blocksFor(count - ids.size()));
+        return takeFromNewBlocks(ids, count, blockStarts);
+    }
+
+    /**
+     * Идентификаторы из уже полученного блока, не больше {@code count}.
+     */
+    List<Integer> takeReserved(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        lock.lock();
+        try {
+            takeFromBlock(ids, count);
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+
+    static int blocksFor(int missing) {
+        return (missing + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Дополняет {@code ids} до {@code count} из новых блоков; остаток последнего блока выдаётся следующим вызовам.
+     */
+    List<Integer> takeFromNewBlocks(List<Integer> ids, int count, List<Long> blockStarts) {
+        log.debug("Reserved {} id blocks starting at {}", blockStarts.size(), blockStarts);
+        long lastStart = 0;
+        for (long blockStart : blockStarts) {
+            lastStart = blockStart;
+            for (long id = blockStart; id < blockStart + BLOCK_SIZE && ids.size() < count; id++) {
+                ids.add(Math.toIntExact(id));
+            }
+        }
+
+        long rest = ids.get(ids.size() - 1) + 1L;
+        lock.lock();
+        try {
+            // остаток последнего блока становится текущим, если текущий уже исчерпан другими потоками
+            if (next >= limit && rest < lastStart + BLOCK_SIZE) {
+                next = rest;
+                limit = lastStart + BLOCK_SIZE;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+
+    private void takeFromBlock(List<Integer> ids, int count) {
+        while (ids.size() < count && next < limit) {
+            ids.add(Math.toIntExact(next++));
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.edu.ulab.app.repository;
 
+import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<Person, Long> {
+public interface UserRepository extends CrudRepository<Person, Integer>, UserRepositoryCustom {
 
     /*
     User has books - book - started - comited status - other logic
@@ -18,7 +20,31 @@ public interface UserRepository extends CrudRepository<Person, Long> {
     User has books - book - finished
      */
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select p from Person p where p.id = :id")
-    Optional<Person> findByIdForUpdate(int id);
+    /**
+     * Удаляет пользователя одним запросом; его книги удаляет внешний ключ {@code ON DELETE CASCADE}.
+     */
+    @Modifying
+    @Query("delete from Person p where p.id = :id")
+    int deleteWithBooksById(Integer id);
+
+    /**
+     * Идентификаторы книг пользователя одним запросом. Пустой список - пользователя нет,
+     * список из одного {@code null} - пользователь есть, книг нет.
+     */
+    @Query("select b.id from Person p left join p.bookSet b where p.id = :id order by b.id")
+    List<Integer> findBookIdsById(Integer id);
+
+    /**
+     * Пользователь сразу в виде {@link UserDto}, без загрузки сущности в контекст персистентности.
+     */
+    @Query("select new com.edu.ulab.app.dto.UserDto(p.id, p.fullName, p.title, p.age, p.version) "
+            + "from Person p where p.id = :id")
+    Optional<UserDto> findDtoById(Integer id);
+
+    /**
+     * Пользователи с переданными идентификаторами в виде {@link UserDto}.
+     */
+    @Query("select new com.edu.ulab.app.dto.UserDto(p.id, p.fullName, p.title, p.age, p.version) "
+            + "from Person p where p.id in :ids")
+    List<UserDto> findDtosByIdIn(Collection<Integer> ids);
 }
@@ -0,0 +1,15 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Страница пользователей с идентификатором больше {@code afterId} по возрастанию идентификатора.
+     * Условие запроса содержит только заданные поля фильтра, поэтому у каждого набора фильтров свой план.
+     */
+    List<UserDto> findPageAfterId(int afterId, UserFilterDto filter, int limit);
+}
@@ -0,0 +1,56 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
+import com.edu.ulab.app.entity.Person;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запрос страницы собирается из заданных полей фильтра, как и SQL в
+ * {@link com.edu.ulab.app.service.impl.UserServiceImplTemplate#findUsers}: условие вида
+ * {@code (:x is null or ...)} даёт один общий план, который не использует индексы отдельных фильтров.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserDto> findPageAfterId(int afterId, UserFilterDto filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDto> query = cb.createQuery(UserDto.class);
+        Root<Person> person = query.from(Person.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.gt(person.get("id"), afterId));
+        if (filter.getTitle() != null) {
+            predicates.add(cb.equal(person.get("title"), filter.getTitle()));
+        }
+        if (filter.getMinAge() != null && filter.getMinAge().equals(filter.getMaxAge())) {
+            // точный возраст - равенство, его обслуживает индекс (age, id) в порядке id
+            predicates.add(cb.equal(person.get("age"), filter.getMinAge()));
+        } else {
+            if (filter.getMinAge() != null) {
+                predicates.add(cb.ge(person.get("age"), filter.getMinAge()));
+            }
+            if (filter.getMaxAge() != null) {
+                predicates.add(cb.le(person.get("age"), filter.getMaxAge()));
+            }
+        }
+
+        query.select(cb.construct(UserDto.class, person.get("id"), person.get("fullName"), person.get("title"),
+                        person.get("age"), person.get("version")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.asc(person.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
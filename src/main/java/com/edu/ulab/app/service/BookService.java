@@ -4,17 +4,30 @@ package com.edu.ulab.app.service;
 import com.edu.ulab.app.dto.BookDto;
 
 import java.util.List;
+import java.util.Map;
 
 public interface BookService {
     BookDto createBook(BookDto bookDto);
 
+    List<BookDto> createBooks(List<BookDto> bookDtos);
+
     BookDto updateBook(BookDto bookDto);
 
+    List<BookDto> updateBooks(List<BookDto> bookDtos);
+
     BookDto getBookById(Integer id);
 
     void deleteBookById(Integer id);
 
+    void deleteBooksByIds(List<Integer> ids);
+
     List<BookDto> getBookByUserId(Integer id);
 
+    /**
+     * Идентификаторы книг по возрастанию для каждого из переданных пользователей одним запросом.
+     * Пользователей без книг в результате нет.
+     */
+    Map<Integer, List<Integer>> getBookIdsByUserIds(List<Integer> userIds);
+
     void deleteBooksByUserId(Integer id);
 }
@@ -0,0 +1,30 @@
+package com.edu.ulab.app.service;
+
+import java.util.Optional;
+
+/**
+ * Долговременное хранилище ответов по идентификатору запроса {@code rqid}: повтор запроса клиентом
+ * получает первый ответ, а не выполняется заново. Вместе с ответом хранится отпечаток тела запроса,
+ * чтобы тот же {@code rqid} с другим телом не получил чужой ответ. Ответ хранится {@code idempotency.ttl}.
+ */
+public interface IdempotencyStore {
+    <T> Optional<StoredResponse<T>> find(String requestId, Class<T> responseType);
+
+    /**
+     * Сохраняет ответ в текущей транзакции. Если ответ на этот запрос уже сохранён, бросает
+     * {@link org.springframework.dao.DuplicateKeyException}, и транзакция с повторной записью откатывается.
+     */
+    void save(String requestId, String fingerprint, Object response);
+
+    /**
+     * Удаляет ответы старше срока хранения и возвращает их число.
+     */
+    int deleteExpired();
+
+    /**
+     * Сохранённый ответ и отпечаток тела запроса, на который он дан. У записей, сохранённых до появления
+     * отпечатков, {@code fingerprint} равен {@code null}.
+     */
+    record StoredResponse<T>(String fingerprint, T response) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.BookDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Неблокирующий аналог {@link BookService} для реактивного {@code /user} API.
+ */
+public interface ReactiveBookService {
+    /**
+     * @return созданные книги с идентификаторами в порядке {@code bookDtos}
+     */
+    Flux<BookDto> createBooks(List<BookDto> bookDtos);
+
+    Flux<BookDto> updateBooks(List<BookDto> bookDtos);
+
+    Flux<BookDto> getBookByUserId(Integer id);
+
+    Mono<Void> deleteBooksByIds(List<Integer> ids);
+
+    Mono<Void> deleteBooksByUserId(Integer id);
+}
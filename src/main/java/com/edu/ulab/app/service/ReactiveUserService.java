@@ -0,0 +1,22 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Неблокирующий аналог {@link UserService} для реактивного {@code /user} API.
+ */
+public interface ReactiveUserService {
+    Mono<UserDto> createUser(UserDto userDto);
+
+    Mono<UserDto> updateUser(UserDto userDto);
+
+    Mono<List<Integer>> getUserBookIds(Integer id);
+
+    /**
+     * Удаляет пользователя вместе с его книгами.
+     */
+    Mono<Void> deleteUserById(Integer id);
+}
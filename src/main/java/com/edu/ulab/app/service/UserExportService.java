@@ -0,0 +1,13 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserBooksDto;
+
+import java.util.function.Consumer;
+
+public interface UserExportService {
+
+    /**
+     * Передаёт всех пользователей с их книгами в {@code consumer} по одному, в порядке идентификаторов.
+     */
+    void exportUsersWithBooks(Consumer<UserBooksDto> consumer);
+}
@@ -1,15 +1,35 @@
 package com.edu.ulab.app.service;
 
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface UserService {
     UserDto createUser(UserDto userDto);
 
+    List<UserDto> createUsers(List<UserDto> userDtos);
+
     UserDto updateUser(UserDto userDto);
 
     UserDto getUserById(Integer id);
 
+    List<Integer> getUserBookIds(Integer id);
+
+    /**
+     * Пользователи с переданными идентификаторами одним запросом, отсутствующие пропускаются.
+     */
+    List<UserDto> getUsersByIds(List<Integer> ids);
+
+    /**
+     * Страница пользователей с идентификатором больше {@code afterId}, отсортированная по идентификатору.
+     */
+    List<UserDto> findUsers(UserFilterDto filter, Integer afterId, int limit);
+
+    /**
+     * Удаляет пользователя вместе с его книгами.
+     */
     void deleteUserById(Integer id);
 }
@@ -1,43 +1,80 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.config.BackendProfiles;
 import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.service.BookService;
 import com.edu.ulab.app.validation.BookValid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Profile(BackendProfiles.DATABASE)
 public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
 
     private final BookMapper bookMapper;
 
+    private final EntityManager entityManager;
+
+    private final SequenceIdAllocator idAllocator;
+
     public BookServiceImpl(BookRepository bookRepository,
-                           BookMapper bookMapper) {
+                           BookMapper bookMapper,
+                           EntityManager entityManager,
+                           SequenceIdAllocator idAllocator) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
+        this.entityManager = entityManager;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public BookDto createBook(BookDto bookDto) {
-        Book book = bookMapper.bookDtoToBook(bookDto);
+        Book book = toBook(bookDto);
+        book.setId(idAllocator.nextId());
         log.info("Mapped book: {}", book);
         Book savedBook = bookRepository.save(book);
         log.info("Saved book: {}", savedBook);
         return bookMapper.bookToBookDto(savedBook);
     }
 
+    @Transactional
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        List<Book> books = bookDtos.stream()
+                .map(this::toBook)
+                .toList();
+        List<Integer> ids = idAllocator.nextIds(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(ids.get(i));
+        }
+        List<BookDto> savedBooks = new ArrayList<>(books.size());
+        bookRepository.saveAll(books)
+                .forEach(savedBook -> savedBooks.add(bookMapper.bookToBookDto(savedBook)));
+        log.info("Saved {} books", savedBooks.size());
+        return savedBooks;
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
         BookDto existBook = getBookById(bookDto.getId());
@@ -52,40 +89,100 @@ public class BookServiceImpl implements BookService {
         if (bookDto.getPageCount() != 0) {
             existBook.setPageCount(bookDto.getPageCount());
         }
+        if (bookDto.getVersion() != null) {
+            existBook.setVersion(bookDto.getVersion());
+        }
         if (BookValid.isValidBook(bookDto)) {
             existBook = bookMapper.bookToBookDto(bookRepository
-                    .save(bookMapper.bookDtoToBook(existBook)));
+                    .save(toBook(existBook)));
             log.info("Update book: {} ", bookDto);
         }
         return existBook;
     }
 
+    /**
+     * Обновляет книги, если их версии совпадают с версиями из {@code bookDtos} (когда они известны)
+     * и не изменились до записи. Иначе бросает {@link ObjectOptimisticLockingFailureException}.
+     */
+    @Transactional
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        Map<Integer, Book> existBooks = bookRepository
+                .findAllByIdIn(bookDtos.stream().map(BookDto::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<BookDto> updatedBooks = new ArrayList<>(bookDtos.size());
+        for (BookDto bookDto : bookDtos) {
+            Book existBook = existBooks.get(bookDto.getId());
+            if (existBook == null) {
+                throw new NotFoundException("Can not fount book with ID: " + bookDto.getId());
+            }
+            if (bookDto.getVersion() != null && !bookDto.getVersion().equals(existBook.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Book.class, bookDto.getId());
+            }
+            existBook.setTitle(bookDto.getTitle());
+            existBook.setAuthor(bookDto.getAuthor());
+            existBook.setPageCount(bookDto.getPageCount());
+        }
+        bookRepository.flush();
+        for (BookDto bookDto : bookDtos) {
+            updatedBooks.add(bookMapper.bookToBookDto(existBooks.get(bookDto.getId())));
+        }
+        log.info("Updated {} books", updatedBooks.size());
+        return updatedBooks;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public BookDto getBookById(Integer id) {
-        Book book = bookRepository.findById(Long.valueOf(id))
+        BookDto bookDto = bookRepository.findDtoById(id)
                 .orElseThrow(() -> new NotFoundException("Can not fount book with ID: " + id));
         log.info("Find book with ID: " + id);
-        return bookMapper.bookToBookDto(book);
+        return bookDto;
     }
 
     @Override
     public void deleteBookById(Integer id) {
         try {
-            bookRepository.deleteById(Long.valueOf(id));
+            bookRepository.deleteById(id);
             log.info("deleted book with ID: " + id);
         } catch (EmptyResultDataAccessException exc) {
             throw new NotFoundException("BOOK with ID" + id + "not found");
         }
     }
 
+    @Transactional
+    @Override
+    public void deleteBooksByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int deleted = bookRepository.deleteAllByIdIn(ids);
+        log.info("deleted {} books with IDs: {}", deleted, ids);
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public List<BookDto> getBookByUserId(Integer id) {
         log.info("Get BOOKS by user ID{}", id);
-        return bookRepository
-                .findAllByPersonId(id)
-                .stream()
-                .map(bookMapper::bookToBookDto)
-                .collect(Collectors.toList());
+        return bookRepository.findDtosByPersonId(id);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Map<Integer, List<Integer>> getBookIdsByUserIds(List<Integer> userIds) {
+        Map<Integer, List<Integer>> bookIds = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return bookIds;
+        }
+        for (Object[] ids : bookRepository.findIdsByPersonIdIn(userIds)) {
+            bookIds.computeIfAbsent((Integer) ids[0], userId -> new ArrayList<>()).add((Integer) ids[1]);
+        }
+        log.info("Found books of {} of {} users", bookIds.size(), userIds.size());
+        return bookIds;
     }
 
     @Transactional
@@ -93,4 +190,10 @@ public class BookServiceImpl implements BookService {
     public void deleteBooksByUserId(Integer id) {
         bookRepository.deleteByPersonId(id);
     }
+
+    private Book toBook(BookDto bookDto) {
+        Book book = bookMapper.bookDtoToBook(bookDto);
+        book.setPerson(entityManager.getReference(Person.class, bookDto.getUserId()));
+        return book;
+    }
 }
@@ -0,0 +1,196 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.repository.ReactiveSequenceIdAllocator;
+import com.edu.ulab.app.service.ReactiveBookService;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Книги на R2DBC. Пачка вставок или обновлений уходит одним {@link Statement} с набором привязок,
+ * и драйвер отправляет их конвейером на одном соединении, не дожидаясь ответа на каждую.
+ */
+@Slf4j
+@Service
+@Profile(BackendProfiles.REACTIVE)
+public class BookServiceImplR2dbc implements ReactiveBookService {
+    private static final String INSERT_SQL = """
+                                             INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID, ID)
+                                             VALUES ($1, $2, $3, $4, $5)
+                                             """;
+    /**
+     * Частичное обновление, как {@link BookServiceImplTemplate#updateBook}: {@code null} и число страниц 0
+     * оставляют значение столбца, версия проверяется, только если она передана.
+     */
+    private static final String UPDATE_SQL = """
+                                             UPDATE BOOK SET
+                                             TITLE = COALESCE($1, TITLE),
+                                             AUTHOR = COALESCE($2, AUTHOR),
+                                             PAGE_COUNT = COALESCE($3, PAGE_COUNT),
+                                             USER_ID = COALESCE($4, USER_ID),
+                                             VERSION = VERSION + 1
+                                             WHERE ID = $5 AND VERSION = COALESCE($6, VERSION)
+                                             """;
+    private static final String GET_BOOKS_SQL = "SELECT * FROM BOOK WHERE USER_ID = $1 ORDER BY ID";
+    private static final String DELETE_BY_IDS_SQL = "DELETE FROM BOOK WHERE ID = ANY($1)";
+    private static final String DELETE_SQL_BY_USER_ID = "DELETE FROM BOOK WHERE USER_ID = $1";
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveSequenceIdAllocator idAllocator;
+
+    public BookServiceImplR2dbc(DatabaseClient databaseClient, ReactiveSequenceIdAllocator idAllocator) {
+        this.databaseClient = databaseClient;
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public Flux<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return Flux.empty();
+        }
+        return idAllocator.nextIds(bookDtos.size())
+                .flatMapMany(ids -> {
+                    for (int i = 0; i < ids.size(); i++) {
+                        bookDtos.get(i).setId(ids.get(i));
+                    }
+                    return databaseClient.inConnectionMany(connection -> {
+                        Statement statement = connection.createStatement(INSERT_SQL);
+                        bindInserts(statement, bookDtos);
+                        return Flux.from(statement.execute())
+                                .concatMap(result -> Flux.from(result.getRowsUpdated()));
+                    });
+                })
+                .thenMany(Flux.defer(() -> {
+                    log.info("Created {} books in one pipeline", bookDtos.size());
+                    return Flux.fromIterable(bookDtos);
+                }));
+    }
+
+    @Override
+    public Flux<BookDto> updateBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(UPDATE_SQL);
+                    bindUpdates(statement, bookDtos);
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> Flux.from(result.getRowsUpdated()));
+                })
+                .index()
+                .flatMap(rowsUpdated -> {
+                    BookDto bookDto = bookDtos.get(rowsUpdated.getT1().intValue());
+                    if (rowsUpdated.getT2() == 0 && bookDto.getVersion() == null) {
+                        return Mono.error(new NotFoundException("Book with ID: " + bookDto.getId() + "not found"));
+                    }
+                    if (rowsUpdated.getT2() == 0) {
+                        return Mono.error(new OptimisticLockingFailureException("Book with ID: " + bookDto.getId()
+                                + " was changed concurrently, expected version " + bookDto.getVersion()));
+                    }
+                    if (bookDto.getVersion() != null) {
+                        bookDto.setVersion(bookDto.getVersion() + 1);
+                    }
+                    return Mono.just(bookDto);
+                })
+                .doOnComplete(() -> log.info("Updated {} books in one pipeline", bookDtos.size()));
+    }
+
+    @Override
+    public Flux<BookDto> getBookByUserId(Integer id) {
+        return databaseClient.sql(GET_BOOKS_SQL)
+                .bind(0, id)
+                .map(BookServiceImplR2dbc::toBookDto)
+                .all();
+    }
+
+    @Override
+    public Mono<Void> deleteBooksByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql(DELETE_BY_IDS_SQL)
+                .bind(0, ids.toArray(Integer[]::new))
+                .then()
+                .doOnSuccess(ignored -> log.info("Deleted books with IDs {}", ids));
+    }
+
+    @Override
+    public Mono<Void> deleteBooksByUserId(Integer id) {
+        if (id == null) {
+            return Mono.error(new NotValidException("ID can not be null"));
+        }
+        return databaseClient.sql(DELETE_SQL_BY_USER_ID)
+                .bind(0, id)
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(deleted -> log.info("Deleted {} books of user {}", deleted, id))
+                .then();
+    }
+
+    /**
+     * Привязывает параметры каждой книги; {@link Statement#add()} отделяет привязку предыдущей книги.
+     */
+    private static void bindInserts(Statement statement, List<BookDto> bookDtos) {
+        for (int i = 0; i < bookDtos.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+            BookDto bookDto = bookDtos.get(i);
+            bindNullable(statement, 0, bookDto.getTitle());
+            bindNullable(statement, 1, bookDto.getAuthor());
+            statement.bind(2, bookDto.getPageCount());
+            statement.bind(3, bookDto.getUserId().longValue());
+            statement.bind(4, bookDto.getId().longValue());
+        }
+    }
+
+    private static void bindUpdates(Statement statement, List<BookDto> bookDtos) {
+        for (int i = 0; i < bookDtos.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+            BookDto bookDto = bookDtos.get(i);
+            bindNullable(statement, 0, bookDto.getTitle());
+            bindNullable(statement, 1, bookDto.getAuthor());
+            bindNullable(statement, 2, bookDto.getPageCount() == 0 ? null : bookDto.getPageCount(), Long.class);
+            bindNullable(statement, 3, bookDto.getUserId() == null ? null : bookDto.getUserId().longValue(), Long.class);
+            statement.bind(4, bookDto.getId().longValue());
+            bindNullable(statement, 5, bookDto.getVersion(), Integer.class);
+        }
+    }
+
+    private static void bindNullable(Statement statement, int index, String value) {
+        bindNullable(statement, index, value, String.class);
+    }
+
+    private static <T> void bindNullable(Statement statement, int index, T value, Class<T> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static BookDto toBookDto(Row row) {
+        Integer pageCount = row.get("page_count", Integer.class);
+        return new BookDto(
+                row.get("id", Long.class).intValue(),
+                row.get("user_id", Long.class).intValue(),
+                row.get("title", String.class),
+                row.get("author", String.class),
+                pageCount == null ? 0 : pageCount,
+                row.get("version", Integer.class));
+    }
+}
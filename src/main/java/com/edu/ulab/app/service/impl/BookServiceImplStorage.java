@@ -0,0 +1,127 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.storage.StoredBook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@Qualifier("bookBackend")
+@Profile(BackendProfiles.STORAGE)
+public class BookServiceImplStorage implements BookService {
+    private final Storage storage;
+
+    public BookServiceImplStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public BookDto createBook(BookDto bookDto) {
+        StoredBook book = storage.insertBook(toStoredBook(bookDto));
+        log.info("Saved book: {}", book);
+        return toBookDto(book);
+    }
+
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        List<BookDto> createdBooks = storage.insertBooks(bookDtos.stream()
+                        .map(this::toStoredBook)
+                        .toList())
+                .stream()
+                .map(this::toBookDto)
+                .toList();
+        log.info("Saved {} books", createdBooks.size());
+        return createdBooks;
+    }
+
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
+        return updateBooks(List.of(bookDto)).get(0);
+    }
+
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        bookDtos.forEach(bookDto -> validateID(bookDto.getId()));
+        storage.updateBooks(bookDtos.stream()
+                .map(this::toStoredBook)
+                .toList());
+        log.info("Updated {} books", bookDtos.size());
+        return bookDtos;
+    }
+
+    @Override
+    public BookDto getBookById(Integer id) {
+        validateID(id);
+        return toBookDto(storage.getBook(id));
+    }
+
+    @Override
+    public void deleteBookById(Integer id) {
+        validateID(id);
+        if (storage.deleteBooks(new int[]{id}) == 0) {
+            throw new NotFoundException("Book with ID:" + id + "not found");
+        }
+        log.info("Book with ID{} deleted", id);
+    }
+
+    @Override
+    public void deleteBooksByIds(List<Integer> ids) {
+        int deleted = storage.deleteBooks(ids.stream().mapToInt(Integer::intValue).toArray());
+        log.info("Deleted {} books with IDs {}", deleted, ids);
+    }
+
+    @Override
+    public List<BookDto> getBookByUserId(Integer id) {
+        validateID(id);
+        return storage.getBooksByUser(id)
+                .stream()
+                .map(this::toBookDto)
+                .toList();
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> getBookIdsByUserIds(List<Integer> userIds) {
+        Map<Integer, List<Integer>> bookIds = new HashMap<>();
+        storage.getBookIdsByUsers(userIds.stream().mapToInt(Integer::intValue).toArray())
+                .forEach((userId, userBookIds) -> bookIds.put(userId, Arrays.stream(userBookIds).boxed().toList()));
+        return bookIds;
+    }
+
+    @Override
+    public void deleteBooksByUserId(Integer id) {
+        validateID(id);
+        int deleted = storage.deleteBooksByUser(id);
+        log.info("Deleted {} books of user {}", deleted, id);
+    }
+
+    private StoredBook toStoredBook(BookDto bookDto) {
+        if (bookDto.getUserId() == null) {
+            throw new NotValidException("Book owner can not be null: " + bookDto);
+        }
+        return new StoredBook(bookDto.getId() == null ? 0 : bookDto.getId(), bookDto.getUserId(),
+                bookDto.getTitle(), bookDto.getAuthor(), bookDto.getPageCount());
+    }
+
+    private BookDto toBookDto(StoredBook book) {
+        return new BookDto(book.id(), book.userId(), book.title(), book.author(), book.pageCount());
+    }
+
+    private void validateID(Integer id) {
+        if (id == null) {
+            throw new NotValidException("ID can not be null");
+        }
+    }
+}
@@ -1,85 +1,174 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.config.BackendProfiles;
 import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.service.BookService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Service;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 @Slf4j
 @Service
+@Qualifier("bookBackend")
+@Profile(BackendProfiles.DATABASE)
 public class BookServiceImplTemplate implements BookService {
 
     private final JdbcTemplate jdbcTemplate;
 
+    private final SequenceIdAllocator idAllocator;
+
     private final static String INSERT_SQL = """
-                                             INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?)
+                                             INSERT INTO BOOK(ID, TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?,?)
                                              """;
 
     private final static String UPDATE_SQL = """
                                              UPDATE BOOK SET 
-                                             TITLE = ?, AUTHOR = ?, PAGE_COUNT = ?, USER_ID = ? 
-                                             WHERE ID = ?
+                                             TITLE = ?, AUTHOR = ?, PAGE_COUNT = ?, USER_ID = ?, VERSION = VERSION + 1 
+                                             WHERE ID = ? AND VERSION = COALESCE(?, VERSION)
                                              """;
 
+    /**
+     * Частичное обновление одной книги: {@code null} оставляет значение столбца, версия проверяется,
+     * только если она передана.
+     */
+    private final static String PATCH_SQL = """
+                                            UPDATE BOOK SET 
+                                            TITLE = COALESCE(?, TITLE), 
+                                            AUTHOR = COALESCE(?, AUTHOR), 
+                                            PAGE_COUNT = COALESCE(?, PAGE_COUNT), 
+                                            USER_ID = COALESCE(?, USER_ID), 
+                                            VERSION = VERSION + 1 
+                                            WHERE ID = ? AND VERSION = COALESCE(?, VERSION) 
+                                            RETURNING *
+                                            """;
+    private final static int[] PATCH_SQL_TYPES =
+            {Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.BIGINT, Types.INTEGER};
+    private final static String EXISTS_SQL = "SELECT EXISTS(SELECT 1 FROM BOOK WHERE ID = ?)";
+
     private final static String GET_BY_ID = "SELECT * FROM BOOK WHERE ID = ?";
 
     private final static String DELETE_SQL = "DELETE FROM BOOK WHERE ID = ?";
     private final static String GET_BOOKS_SQL = "SELECT * FROM BOOK WHERE USER_ID = ?";
+    private final static String GET_BOOK_IDS_BY_USER_IDS_SQL = """
+                                                               SELECT USER_ID, ARRAY_AGG(ID ORDER BY ID) AS BOOK_IDS
+                                                               FROM BOOK WHERE USER_ID = ANY(?)
+                                                               GROUP BY USER_ID
+                                                               """;
     private final static String DELETE_SQL_BY_USER_ID = "DELETE FROM BOOK WHERE USER_ID = ?";
 
-    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate) {
+    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                   SequenceIdAllocator idAllocator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public BookDto createBook(BookDto bookDto) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                new PreparedStatementCreator() {
-                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
-                        PreparedStatement ps =
-                                connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                        ps.setString(1, bookDto.getTitle());
-                        ps.setString(2, bookDto.getAuthor());
-                        ps.setLong(3, bookDto.getPageCount());
-                        ps.setLong(4, bookDto.getUserId());
-                        return ps;
-                    }
-                },
-                keyHolder);
-
-        bookDto.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        bookDto.setId(idAllocator.nextId());
+        jdbcTemplate.update(INSERT_SQL, bookDto.getId(), bookDto.getTitle(), bookDto.getAuthor(),
+                bookDto.getPageCount(), bookDto.getUserId());
         return bookDto;
     }
 
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        List<Integer> ids = idAllocator.nextIds(bookDtos.size());
+        for (int i = 0; i < bookDtos.size(); i++) {
+            bookDtos.get(i).setId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, bookDtos, bookDtos.size(), (ps, bookDto) -> {
+            ps.setInt(1, bookDto.getId());
+            ps.setString(2, bookDto.getTitle());
+            ps.setString(3, bookDto.getAuthor());
+            ps.setLong(4, bookDto.getPageCount());
+            ps.setLong(5, bookDto.getUserId());
+        });
+        log.info("Created {} books in one batch", bookDtos.size());
+        return bookDtos;
+    }
+
+    /**
+     * Обновляет непустые поля книги одним запросом и возвращает строку после обновления. Поля
+     * {@code null} и число страниц 0 не меняются, как в {@link BookServiceImpl#updateBook}. Версия из {@code bookDto},
+     * если она есть, должна совпасть с версией строки, иначе бросается {@link OptimisticLockingFailureException}.
+     */
     @Override
     public BookDto updateBook(BookDto bookDto) {
         validateID(bookDto.getId());
-        if (getBookById(bookDto.getId()) != null) {
-            jdbcTemplate.update(UPDATE_SQL,
-                    bookDto.getTitle(),
-                    bookDto.getAuthor(),
-                    bookDto.getPageCount(),
-                    bookDto.getUserId(),
-                    bookDto.getId());
-            log.info("Book with ID{} update", bookDto.getId());
-            return bookDto;
-        } else {
+        List<BookDto> updated = jdbcTemplate.query(PATCH_SQL,
+                new Object[]{
+                        bookDto.getTitle(),
+                        bookDto.getAuthor(),
+                        bookDto.getPageCount() == 0 ? null : bookDto.getPageCount(),
+                        bookDto.getUserId(),
+                        bookDto.getId(),
+                        bookDto.getVersion()},
+                PATCH_SQL_TYPES,
+                BookServiceImplTemplate::mapBook);
+        if (updated.isEmpty()) {
+            if (bookDto.getVersion() != null
+                    && Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, bookDto.getId()))) {
+                throw new OptimisticLockingFailureException("Book with ID: " + bookDto.getId()
+                        + " was changed concurrently, expected version " + bookDto.getVersion());
+            }
             throw new NotFoundException("Book with ID: " + bookDto.getId() + "not found");
         }
+        log.info("Book with ID{} update", bookDto.getId());
+        return updated.get(0);
+    }
+
+    /**
+     * Обновляет книги одним пакетом. Версия книги проверяется, если она есть в {@code bookDto};
+     * при несовпадении бросается {@link OptimisticLockingFailureException}.
+     */
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        List<Object[]> batchArgs = bookDtos.stream()
+                .map(bookDto -> new Object[]{
+                        bookDto.getTitle(),
+                        bookDto.getAuthor(),
+                        bookDto.getPageCount(),
+                        bookDto.getUserId(),
+                        bookDto.getId(),
+                        bookDto.getVersion()})
+                .toList();
+        int[] rowsAffected = jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+        for (int i = 0; i < rowsAffected.length; i++) {
+            BookDto bookDto = bookDtos.get(i);
+            if (rowsAffected[i] == 0 && bookDto.getVersion() == null) {
+                throw new NotFoundException("Book with ID: " + bookDto.getId() + "not found");
+            }
+            if (rowsAffected[i] == 0) {
+                throw new OptimisticLockingFailureException("Book with ID: " + bookDto.getId()
+                        + " was changed concurrently, expected version " + bookDto.getVersion());
+            }
+            if (bookDto.getVersion() != null) {
+                bookDto.setVersion(bookDto.getVersion() + 1);
+            }
+        }
+        log.info("Updated {} books in one batch", bookDtos.size());
+        return bookDtos;
     }
 
     @Override
@@ -93,7 +182,8 @@ public class BookServiceImplTemplate implements BookService {
                     bookRow.getInt("USER_ID"),
                     bookRow.getString("TITLE"),
                     bookRow.getString("AUTHOR"),
-                    bookRow.getInt("PAGE_COUNT")
+                    bookRow.getInt("PAGE_COUNT"),
+                    bookRow.getInt("VERSION")
             );
             log.info("Book with ID{} found", id);
         } else {
@@ -112,14 +202,37 @@ public class BookServiceImplTemplate implements BookService {
         }
     }
 
+    @Override
+    public void deleteBooksByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = ids.stream()
+                .map(id -> new Object[]{id})
+                .toList();
+        jdbcTemplate.batchUpdate(DELETE_SQL, batchArgs);
+        log.info("Deleted books with IDs {}", ids);
+    }
+
     @Override
     public List<BookDto> getBookByUserId(Integer id) {
-        return jdbcTemplate.query(GET_BOOKS_SQL, (rs, rowNum) -> new BookDto(
-                rs.getInt("ID"),
-                rs.getInt("USER_ID"),
-                rs.getString("TITLE"),
-                rs.getString("AUTHOR"),
-                rs.getInt("PAGE_COUNT")), id);
+        return jdbcTemplate.query(GET_BOOKS_SQL, BookServiceImplTemplate::mapBook, id);
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> getBookIdsByUserIds(List<Integer> userIds) {
+        Map<Integer, List<Integer>> bookIds = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return bookIds;
+        }
+        jdbcTemplate.query(GET_BOOK_IDS_BY_USER_IDS_SQL, rs -> {
+            // BOOK.ID - BIGINT, поэтому pgjdbc возвращает Long[]
+            bookIds.put(rs.getInt("USER_ID"), Arrays.stream((Number[]) rs.getArray("BOOK_IDS").getArray())
+                    .map(Number::intValue)
+                    .toList());
+        }, (Object) userIds.toArray(Integer[]::new));
+        log.info("Found books of {} of {} users", bookIds.size(), userIds.size());
+        return bookIds;
     }
 
     @Override
@@ -131,6 +244,16 @@ public class BookServiceImplTemplate implements BookService {
         log.info("delete Books By User Id {}", id);
     }
 
+    private static BookDto mapBook(ResultSet rs, int rowNum) throws SQLException {
+        return new BookDto(
+                rs.getInt("ID"),
+                rs.getInt("USER_ID"),
+                rs.getString("TITLE"),
+                rs.getString("AUTHOR"),
+                rs.getInt("PAGE_COUNT"),
+                rs.getInt("VERSION"));
+    }
+
     private void validateID(Integer id) {
         if (id == null) {
             throw new NotValidException("ID can not be null");
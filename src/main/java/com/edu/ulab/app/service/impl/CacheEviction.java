@@ -0,0 +1,36 @@
+package com.edu.ulab.app.service.impl;
+
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Вытеснение записей кэша при изменении данных. Вне транзакции записи вытесняются сразу.
+ * <p>
+ * В транзакции записи вытесняются сразу, чтобы сама транзакция читала свои изменения, и ещё раз после её
+ * завершения: за время до коммита параллельное чтение могло снова положить в кэш старое значение, а чтение
+ * внутри транзакции - незафиксированное, которое после отката неверно. Повторное вытеснение выполняется раньше
+ * остальных синхронизаций, в том числе смены версии для ETag: новая версия не выдаётся вместе со старыми данными.
+ */
+final class CacheEviction {
+
+    private CacheEviction() {
+    }
+
+    static void evict(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
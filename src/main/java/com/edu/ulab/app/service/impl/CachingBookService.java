@@ -0,0 +1,178 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.service.BookService;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Read-through кэш поверх {@link BookService}. Кэшируются книги пользователя, записи
+ * инвалидируются по владельцу при любом изменении его книг, в транзакции - ещё и после её завершения,
+ * см. {@link CacheEviction}.
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingBookService implements BookService {
+    private final BookService bookService;
+    private final Cache<Integer, List<Integer>> userBookIdsCache;
+    private final Cache<Integer, List<BookDto>> userBooksCache;
+
+    public CachingBookService(@Qualifier("bookBackend") BookService bookService,
+                              Cache<Integer, List<Integer>> userBookIdsCache,
+                              Cache<Integer, List<BookDto>> userBooksCache) {
+        this.bookService = bookService;
+        this.userBookIdsCache = userBookIdsCache;
+        this.userBooksCache = userBooksCache;
+    }
+
+    @Override
+    public BookDto createBook(BookDto bookDto) {
+        try {
+            return bookService.createBook(bookDto);
+        } finally {
+            CacheEviction.evict(() -> evictUser(bookDto.getUserId()));
+        }
+    }
+
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        try {
+            return bookService.createBooks(bookDtos);
+        } finally {
+            CacheEviction.evict(() -> evictOwners(bookDtos));
+        }
+    }
+
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
+        try {
+            return bookService.updateBook(bookDto);
+        } finally {
+            CacheEviction.evict(() -> {
+                if (bookDto.getUserId() != null) {
+                    evictUser(bookDto.getUserId());
+                } else {
+                    evictBooks(List.of(bookDto.getId()));
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        try {
+            return bookService.updateBooks(bookDtos);
+        } finally {
+            CacheEviction.evict(() -> {
+                evictOwners(bookDtos);
+                evictBooks(bookDtos.stream().map(BookDto::getId).toList());
+            });
+        }
+    }
+
+    @Override
+    public BookDto getBookById(Integer id) {
+        return bookService.getBookById(id);
+    }
+
+    @Override
+    public void deleteBookById(Integer id) {
+        try {
+            bookService.deleteBookById(id);
+        } finally {
+            CacheEviction.evict(() -> evictBooks(List.of(id)));
+        }
+    }
+
+    @Override
+    public void deleteBooksByIds(List<Integer> ids) {
+        try {
+            bookService.deleteBooksByIds(ids);
+        } finally {
+            CacheEviction.evict(() -> evictBooks(ids));
+        }
+    }
+
+    @Override
+    public List<BookDto> getBookByUserId(Integer id) {
+        return userBooksCache.get(id, userId -> List.copyOf(bookService.getBookByUserId(userId)))
+                .stream()
+                .map(this::copy)
+                .toList();
+    }
+
+    /**
+     * Из базы одним запросом читаются только пользователи, которых нет в кэше. Кэшируются лишь пользователи
+     * с книгами: пустой результат не отличает пользователя без книг от несуществующего, а кэш общий
+     * с {@link com.edu.ulab.app.service.UserService#getUserBookIds}, который для второго бросает исключение.
+     */
+    @Override
+    public Map<Integer, List<Integer>> getBookIdsByUserIds(List<Integer> userIds) {
+        return userBookIdsCache.getAll(userIds, missingIds -> {
+            Map<Integer, List<Integer>> loaded = new HashMap<>();
+            bookService.getBookIdsByUserIds(toList(missingIds))
+                    .forEach((userId, bookIds) -> loaded.put(userId, List.copyOf(bookIds)));
+            return loaded;
+        });
+    }
+
+    @Override
+    public void deleteBooksByUserId(Integer id) {
+        try {
+            bookService.deleteBooksByUserId(id);
+        } finally {
+            CacheEviction.evict(() -> evictUser(id));
+        }
+    }
+
+    private void evictOwners(List<BookDto> bookDtos) {
+        bookDtos.stream()
+                .map(BookDto::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(this::evictUser);
+    }
+
+    private void evictUser(Integer userId) {
+        if (userId != null) {
+            userBooksCache.invalidate(userId);
+            userBookIdsCache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Владелец книги по её идентификатору неизвестен, поэтому ищем кэшированные списки, в которых она есть.
+     */
+    private void evictBooks(Collection<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        userBookIdsCache.asMap().entrySet()
+                .removeIf(entry -> entry.getValue().stream().anyMatch(bookIds::contains));
+        userBooksCache.asMap().entrySet()
+                .removeIf(entry -> entry.getValue().stream().map(BookDto::getId).anyMatch(bookIds::contains));
+        log.info("Evicted cached books with IDs: {}", bookIds);
+    }
+
+    private static List<Integer> toList(Iterable<? extends Integer> ids) {
+        List<Integer> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return list;
+    }
+
+    private BookDto copy(BookDto bookDto) {
+        return new BookDto(bookDto.getId(), bookDto.getUserId(), bookDto.getTitle(),
+                bookDto.getAuthor(), bookDto.getPageCount(), bookDto.getVersion());
+    }
+}
@@ -0,0 +1,116 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
+import com.edu.ulab.app.service.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through кэш поверх {@link UserService}. Кэшируются пользователь и идентификаторы его книг,
+ * записи инвалидируются при изменении и удалении пользователя, в транзакции - ещё и после её завершения,
+ * см. {@link CacheEviction}.
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingUserService implements UserService {
+    private final UserService userService;
+    private final Cache<Integer, UserDto> userCache;
+    private final Cache<Integer, List<Integer>> userBookIdsCache;
+    private final Cache<Integer, List<BookDto>> userBooksCache;
+
+    public CachingUserService(@Qualifier("userBackend") UserService userService,
+                              Cache<Integer, UserDto> userCache,
+                              Cache<Integer, List<Integer>> userBookIdsCache,
+                              Cache<Integer, List<BookDto>> userBooksCache) {
+        this.userService = userService;
+        this.userCache = userCache;
+        this.userBookIdsCache = userBookIdsCache;
+        this.userBooksCache = userBooksCache;
+    }
+
+    @Override
+    public UserDto createUser(UserDto userDto) {
+        return userService.createUser(userDto);
+    }
+
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        return userService.createUsers(userDtos);
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto) {
+        try {
+            return userService.updateUser(userDto);
+        } finally {
+            CacheEviction.evict(() -> userCache.invalidate(userDto.getId()));
+        }
+    }
+
+    @Override
+    public UserDto getUserById(Integer id) {
+        return copy(userCache.get(id, userService::getUserById));
+    }
+
+    @Override
+    public List<Integer> getUserBookIds(Integer id) {
+        return userBookIdsCache.get(id, userId -> List.copyOf(userService.getUserBookIds(userId)));
+    }
+
+    /**
+     * Из базы одним запросом читаются только пользователи, которых нет в кэше. Отсутствующие не кэшируются.
+     */
+    @Override
+    public List<UserDto> getUsersByIds(List<Integer> ids) {
+        return userCache.getAll(ids, missingIds -> userService.getUsersByIds(toList(missingIds))
+                        .stream()
+                        .collect(Collectors.toMap(UserDto::getId, Function.identity())))
+                .values()
+                .stream()
+                .map(this::copy)
+                .toList();
+    }
+
+    @Override
+    public List<UserDto> findUsers(UserFilterDto filter, Integer afterId, int limit) {
+        return userService.findUsers(filter, afterId, limit);
+    }
+
+    @Override
+    public void deleteUserById(Integer id) {
+        try {
+            userService.deleteUserById(id);
+        } finally {
+            CacheEviction.evict(() -> evictUser(id));
+        }
+    }
+
+    private void evictUser(Integer id) {
+        userCache.invalidate(id);
+        userBookIdsCache.invalidate(id);
+        userBooksCache.invalidate(id);
+        log.info("Evicted cached user with ID: {}", id);
+    }
+
+    private static List<Integer> toList(Iterable<? extends Integer> ids) {
+        List<Integer> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return list;
+    }
+
+    private UserDto copy(UserDto userDto) {
+        return new UserDto(userDto.getId(), userDto.getFullName(), userDto.getTitle(), userDto.getAge(),
+                userDto.getVersion());
+    }
+}
@@ -0,0 +1,63 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ответы для бэкенда без PostgreSQL хранятся в памяти процесса, как и сами данные in-memory хранилища.
+ */
+@Service
+@Profile(BackendProfiles.STORAGE)
+public class IdempotencyStoreStorage implements IdempotencyStore {
+    private final Map<String, Entry> responses = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    public IdempotencyStoreStorage(@Value("${idempotency.ttl}") Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    @Override
+    public <T> Optional<StoredResponse<T>> find(String requestId, Class<T> responseType) {
+        Entry stored = responses.get(requestId);
+        if (stored == null || stored.createdAt().isBefore(expiredBefore())) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredResponse<>(stored.fingerprint(), responseType.cast(stored.response())));
+    }
+
+    @Override
+    public void save(String requestId, String fingerprint, Object response) {
+        Entry saved = new Entry(fingerprint, response, Instant.now());
+        Instant expiredBefore = expiredBefore();
+        Entry result = responses.merge(requestId, saved,
+                (existing, replacement) -> existing.createdAt().isBefore(expiredBefore) ? replacement : existing);
+        if (result != saved) {
+            throw new DuplicateKeyException("Request " + requestId + " was already processed");
+        }
+    }
+
+    @Override
+    public int deleteExpired() {
+        Instant expiredBefore = expiredBefore();
+        int sizeBefore = responses.size();
+        responses.values().removeIf(stored -> stored.createdAt().isBefore(expiredBefore));
+        return sizeBefore - responses.size();
+    }
+
+    private Instant expiredBefore() {
+        return Instant.now().minus(ttl);
+    }
+
+    private record Entry(String fingerprint, Object response, Instant createdAt) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.service.IdempotencyStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@Profile(BackendProfiles.DATABASE)
+public class IdempotencyStoreTemplate implements IdempotencyStore {
+    private static final String FIND_SQL = """
+                                           SELECT FINGERPRINT, RESPONSE FROM ULAB_EDU.IDEMPOTENCY_KEY
+                                           WHERE REQUEST_ID = ? AND CREATED_AT > ?
+                                           """;
+    /**
+     * Устаревшая, но ещё не удалённая запись перезаписывается; свежая остаётся, и запрос не меняет ни одной строки.
+     * Конкурентная вставка того же ключа ждёт коммита первой.
+     */
+    private static final String SAVE_SQL = """
+                                           INSERT INTO ULAB_EDU.IDEMPOTENCY_KEY AS K (REQUEST_ID, FINGERPRINT, RESPONSE, CREATED_AT)
+                                           VALUES (?, ?, ?, ?)
+                                           ON CONFLICT (REQUEST_ID) DO UPDATE
+                                           SET FINGERPRINT = EXCLUDED.FINGERPRINT, RESPONSE = EXCLUDED.RESPONSE, CREATED_AT = EXCLUDED.CREATED_AT
+                                           WHERE K.CREATED_AT <= ?
+                                           """;
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM ULAB_EDU.IDEMPOTENCY_KEY WHERE CREATED_AT <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public IdempotencyStoreTemplate(JdbcTemplate jdbcTemplate,
+                                    ObjectMapper objectMapper,
+                                    @Value("${idempotency.ttl}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public <T> Optional<StoredResponse<T>> find(String requestId, Class<T> responseType) {
+        List<Map<String, Object>> responses = jdbcTemplate.queryForList(FIND_SQL, requestId, expiredBefore());
+        if (responses.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, Object> stored = responses.get(0);
+        try {
+            return Optional.of(new StoredResponse<>((String) stored.get("FINGERPRINT"),
+                    objectMapper.readValue((String) stored.get("RESPONSE"), responseType)));
+        } catch (JsonProcessingException exc) {
+            throw new IllegalStateException("Can not read stored response of request " + requestId, exc);
+        }
+    }
+
+    @Override
+    public void save(String requestId, String fingerprint, Object response) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException exc) {
+            throw new IllegalStateException("Can not write response of request " + requestId, exc);
+        }
+        int rowsAffected = jdbcTemplate.update(SAVE_SQL, requestId, fingerprint, json,
+                Timestamp.from(Instant.now()), expiredBefore());
+        if (rowsAffected == 0) {
+            throw new DuplicateKeyException("Request " + requestId + " was already processed");
+        }
+    }
+
+    @Override
+    public int deleteExpired() {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, expiredBefore());
+    }
+
+    private Timestamp expiredBefore() {
+        return Timestamp.from(Instant.now().minus(ttl));
+    }
+}
@@ -0,0 +1,50 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.UserExportService;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.storage.StoredUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Выгрузка из {@link Storage} страницами по идентификатору пользователя.
+ */
+@Slf4j
+@Service
+@Profile(BackendProfiles.STORAGE)
+public class UserExportServiceImplStorage implements UserExportService {
+    private static final int PAGE_SIZE = 1000;
+
+    private final Storage storage;
+
+    public UserExportServiceImplStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void exportUsersWithBooks(Consumer<UserBooksDto> consumer) {
+        long exported = 0;
+        List<StoredUser> page = storage.findUsers(0, user -> true, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (StoredUser user : page) {
+                List<BookDto> books = storage.getBooksByUser(user.id())
+                        .stream()
+                        .map(book -> new BookDto(book.id(), book.userId(), book.title(), book.author(), book.pageCount()))
+                        .toList();
+                consumer.accept(new UserBooksDto(
+                        new UserDto(user.id(), user.fullName(), user.title(), user.age()), books));
+                exported++;
+            }
+            page = storage.findUsers(page.get(page.size() - 1).id(), user -> true, PAGE_SIZE);
+        }
+        log.info("Exported {} persons", exported);
+    }
+}
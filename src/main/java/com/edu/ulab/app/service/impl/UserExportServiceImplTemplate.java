@@ -0,0 +1,105 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.UserExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Выгрузка через серверный курсор: PostgreSQL отдаёт строки порциями по {@code user-export.fetch-size}
+ * только внутри транзакции, поэтому метод выполняется в read-only транзакции.
+ */
+@Slf4j
+@Service
+@Profile(BackendProfiles.DATABASE)
+public class UserExportServiceImplTemplate implements UserExportService {
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    private static final String EXPORT_SQL = """
+                                             SELECT P.ID, P.FULL_NAME, P.TITLE, P.AGE,
+                                                    B.ID AS BOOK_ID, B.TITLE AS BOOK_TITLE,
+                                                    B.AUTHOR AS BOOK_AUTHOR, B.PAGE_COUNT AS BOOK_PAGE_COUNT
+                                             FROM PERSON P
+                                             LEFT JOIN BOOK B ON B.USER_ID = P.ID
+                                             ORDER BY P.ID, B.ID
+                                             """;
+
+    public UserExportServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                         @Value("${user-export.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void exportUsersWithBooks(Consumer<UserBooksDto> consumer) {
+        UserBooksRowHandler rowHandler = new UserBooksRowHandler(consumer);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rowHandler);
+        rowHandler.flush();
+        log.info("Exported {} persons", rowHandler.exported);
+    }
+
+    /**
+     * Собирает строки одного пользователя, идущие подряд благодаря ORDER BY, и отдаёт его дальше,
+     * как только начинается следующий.
+     */
+    private static class UserBooksRowHandler implements RowCallbackHandler {
+        private final Consumer<UserBooksDto> consumer;
+        private UserBooksDto current;
+        private long exported;
+
+        UserBooksRowHandler(Consumer<UserBooksDto> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int userId = rs.getInt("ID");
+            if (current == null || current.getUser().getId() != userId) {
+                flush();
+                current = new UserBooksDto(new UserDto(
+                        userId,
+                        rs.getString("FULL_NAME"),
+                        rs.getString("TITLE"),
+                        rs.getInt("AGE")), new ArrayList<>());
+            }
+            int bookId = rs.getInt("BOOK_ID");
+            if (!rs.wasNull()) {
+                current.getBooks().add(new BookDto(
+                        bookId,
+                        userId,
+                        rs.getString("BOOK_TITLE"),
+                        rs.getString("BOOK_AUTHOR"),
+                        rs.getInt("BOOK_PAGE_COUNT")));
+            }
+        }
+
+        void flush() {
+            if (current != null) {
+                consumer.accept(current);
+                exported++;
+                current = null;
+            }
+        }
+    }
+}
@@ -1,34 +1,47 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.config.BackendProfiles;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotValidException;
 import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.UserService;
 import com.edu.ulab.app.validation.PersonValid;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 @Slf4j
 @Service
+@Profile(BackendProfiles.DATABASE)
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final SequenceIdAllocator idAllocator;
 
     public UserServiceImpl(UserRepository userRepository,
-                           UserMapper userMapper) {
+                           UserMapper userMapper,
+                           SequenceIdAllocator idAllocator) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public UserDto createUser(UserDto userDto) {
         if (PersonValid.isValidPerson(userDto)){
             Person user = userMapper.userDtoToPerson(userDto);
+            user.setId(idAllocator.nextId());
             log.info("Mapped user: {}", user);
             Person createUser = userRepository.save(user);
             log.info("Saved user: {}", createUser);
@@ -38,6 +51,32 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Transactional
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        for (UserDto userDto : userDtos) {
+            if (!PersonValid.isValidPerson(userDto)) {
+                throw new NotValidException("Not valid:  " + userDto);
+            }
+        }
+        List<Person> persons = userDtos.stream()
+                .map(userMapper::userDtoToPerson)
+                .toList();
+        List<Integer> ids = idAllocator.nextIds(persons.size());
+        for (int i = 0; i < persons.size(); i++) {
+            persons.get(i).setId(ids.get(i));
+        }
+        List<UserDto> savedUsers = new ArrayList<>(persons.size());
+        userRepository.saveAll(persons)
+                .forEach(savedPerson -> savedUsers.add(userMapper.personToUserDto(savedPerson)));
+        log.info("Saved {} users", savedUsers.size());
+        return savedUsers;
+    }
+
+    /**
+     * Сохраняет изменения, если с момента чтения пользователя его версия не изменилась: версия из {@code userDto},
+     * а если её нет - прочитанная здесь же. Иначе бросает {@link org.springframework.orm.ObjectOptimisticLockingFailureException}.
+     */
     @Override
     public UserDto updateUser(UserDto userDto) {
         UserDto existUser = getUserById(userDto.getId());
@@ -51,6 +90,9 @@ public class UserServiceImpl implements UserService {
         if (userDto.getAge() != 0) {
             existUser.setAge(userDto.getAge());
         }
+        if (userDto.getVersion() != null) {
+            existUser.setVersion(userDto.getVersion());
+        }
         if (PersonValid.isValidPerson(userDto)) {
             existUser = userMapper.personToUserDto(userRepository
                     .save(userMapper.userDtoToPerson(existUser)));
@@ -59,21 +101,48 @@ public class UserServiceImpl implements UserService {
         return existUser;
     }
 
+    @Transactional(readOnly = true)
     @Override
     public UserDto getUserById(Integer id) {
-        Person person = userRepository.findById(Long.valueOf(id))
+        UserDto userDto = userRepository.findDtoById(id)
                 .orElseThrow(() -> new NotFoundException("Can not fount user with ID: " + id));
         log.info("Find person with ID: " + id);
-        return userMapper.personToUserDto(person);
+        return userDto;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Integer> getUserBookIds(Integer id) {
+        List<Integer> bookIds = userRepository.findBookIdsById(id);
+        if (bookIds.isEmpty()) {
+            throw new NotFoundException("Can not fount user with ID: " + id);
+        }
+        log.info("Find book ids of person with ID: " + id);
+        return bookIds.stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<UserDto> getUsersByIds(List<Integer> ids) {
+        List<UserDto> users = userRepository.findDtosByIdIn(ids);
+        log.info("Found {} of {} persons", users.size(), ids.size());
+        return users;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<UserDto> findUsers(UserFilterDto filter, Integer afterId, int limit) {
+        return userRepository.findPageAfterId(afterId == null ? 0 : afterId, filter, limit);
     }
 
+    @Transactional
     @Override
     public void deleteUserById(Integer id) {
-        try {
-            userRepository.deleteById(Long.valueOf(id));
-            log.info("deleted user with ID: " + id);
-        } catch (EmptyResultDataAccessException exc) {
+        if (userRepository.deleteWithBooksById(id) == 0) {
             throw new NotFoundException("User with ID" + id + "not found");
         }
+        log.info("deleted user with ID: " + id);
     }
 }
@@ -0,0 +1,149 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.repository.ReactiveSequenceIdAllocator;
+import com.edu.ulab.app.service.ReactiveUserService;
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@Profile(BackendProfiles.REACTIVE)
+public class UserServiceImplR2dbc implements ReactiveUserService {
+    private static final String INSERT_SQL = """
+                                             INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE)
+                                             VALUES ($1, $2, $3, $4)
+                                             """;
+    /**
+     * Частичное обновление, как в {@link UserServiceImplTemplate}: {@code null} оставляет значение столбца,
+     * версия проверяется, только если она передана.
+     */
+    private static final String UPDATE_SQL = """
+                                             UPDATE PERSON SET
+                                             FULL_NAME = COALESCE($1, FULL_NAME),
+                                             TITLE = COALESCE($2, TITLE),
+                                             AGE = COALESCE($3, AGE),
+                                             VERSION = VERSION + 1
+                                             WHERE ID = $4 AND VERSION = COALESCE($5, VERSION)
+                                             RETURNING *
+                                             """;
+    private static final String EXISTS_SQL = "SELECT EXISTS(SELECT 1 FROM PERSON WHERE ID = $1)";
+    private static final String DELETE_SQL = "DELETE FROM PERSON WHERE ID = $1";
+    private static final String GET_BOOK_IDS_SQL = """
+                                                   SELECT P.ID, B.ID AS BOOK_ID FROM PERSON P
+                                                   LEFT JOIN BOOK B ON B.USER_ID = P.ID
+                                                   WHERE P.ID = $1
+                                                   ORDER BY B.ID
+                                                   """;
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveSequenceIdAllocator idAllocator;
+
+    public UserServiceImplR2dbc(DatabaseClient databaseClient, ReactiveSequenceIdAllocator idAllocator) {
+        this.databaseClient = databaseClient;
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public Mono<UserDto> createUser(UserDto userDto) {
+        return idAllocator.nextIds(1)
+                .flatMap(ids -> databaseClient.sql(INSERT_SQL)
+                        .bind(0, ids.get(0))
+                        .bind(1, Parameter.fromOrEmpty(userDto.getFullName(), String.class))
+                        .bind(2, Parameter.fromOrEmpty(userDto.getTitle(), String.class))
+                        .bind(3, userDto.getAge())
+                        .then()
+                        .then(Mono.fromSupplier(() -> {
+                            userDto.setId(ids.get(0));
+                            return userDto;
+                        })));
+    }
+
+    @Override
+    public Mono<UserDto> updateUser(UserDto userDto) {
+        if (userDto.getId() == null) {
+            return Mono.error(new NotValidException("ID can not be null"));
+        }
+        return databaseClient.sql(UPDATE_SQL)
+                .bind(0, Parameter.fromOrEmpty(userDto.getFullName(), String.class))
+                .bind(1, Parameter.fromOrEmpty(userDto.getTitle(), String.class))
+                .bind(2, Parameter.fromOrEmpty(userDto.getAge() == 0 ? null : userDto.getAge(), Integer.class))
+                .bind(3, userDto.getId())
+                .bind(4, Parameter.fromOrEmpty(userDto.getVersion(), Integer.class))
+                .map(UserServiceImplR2dbc::toUserDto)
+                .one()
+                .switchIfEmpty(Mono.defer(() -> notUpdated(userDto)))
+                .doOnNext(updated -> log.info("User with ID{} update", updated.getId()));
+    }
+
+    @Override
+    public Mono<List<Integer>> getUserBookIds(Integer id) {
+        if (id == null) {
+            return Mono.error(new NotValidException("ID can not be null"));
+        }
+        return databaseClient.sql(GET_BOOK_IDS_SQL)
+                .bind(0, id)
+                .map(row -> Optional.ofNullable(row.get("book_id", Long.class)))
+                .all()
+                .collectList()
+                .flatMap(rows -> rows.isEmpty()
+                        ? Mono.error(new NotFoundException("Person with ID: " + id + "not found"))
+                        : Mono.just(rows.stream()
+                        .flatMap(Optional::stream)
+                        .map(Long::intValue)
+                        .toList()));
+    }
+
+    @Override
+    public Mono<Void> deleteUserById(Integer id) {
+        if (id == null) {
+            return Mono.error(new NotValidException("ID can not be null"));
+        }
+        return databaseClient.sql(DELETE_SQL)
+                .bind(0, id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rowsUpdated -> rowsUpdated == 0
+                        ? Mono.<Void>error(new NotFoundException("Person with ID:" + id + "not found"))
+                        : Mono.<Void>empty())
+                .doOnSuccess(ignored -> log.info("Person with ID{} deleted", id));
+    }
+
+    /**
+     * Строка не обновлена: если версия передана и пользователь есть, его изменили параллельно.
+     */
+    private Mono<UserDto> notUpdated(UserDto userDto) {
+        Mono<Boolean> exists = userDto.getVersion() == null
+                ? Mono.just(false)
+                : databaseClient.sql(EXISTS_SQL)
+                .bind(0, userDto.getId())
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+        return exists.flatMap(conflict -> Mono.error(conflict
+                ? new OptimisticLockingFailureException("Person with ID: " + userDto.getId()
+                + " was changed concurrently, expected version " + userDto.getVersion())
+                : new NotFoundException("User with ID: " + userDto.getId() + "not found")));
+    }
+
+    private static UserDto toUserDto(Row row) {
+        Integer age = row.get("age", Integer.class);
+        return new UserDto(
+                row.get("id", Long.class).intValue(),
+                row.get("full_name", String.class),
+                row.get("title", String.class),
+                age == null ? 0 : age,
+                row.get("version", Integer.class));
+    }
+}
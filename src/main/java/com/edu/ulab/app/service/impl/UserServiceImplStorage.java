@@ -0,0 +1,122 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.storage.StoredUser;
+import com.edu.ulab.app.validation.PersonValid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+@Slf4j
+@Service
+@Qualifier("userBackend")
+@Profile(BackendProfiles.STORAGE)
+public class UserServiceImplStorage implements UserService {
+    private final Storage storage;
+
+    public UserServiceImplStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public UserDto createUser(UserDto userDto) {
+        validate(userDto);
+        StoredUser user = storage.insertUser(toStoredUser(userDto));
+        log.info("Saved user: {}", user);
+        return toUserDto(user);
+    }
+
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        userDtos.forEach(this::validate);
+        List<UserDto> createdUsers = storage.insertUsers(userDtos.stream()
+                        .map(this::toStoredUser)
+                        .toList())
+                .stream()
+                .map(this::toUserDto)
+                .toList();
+        log.info("Saved {} users", createdUsers.size());
+        return createdUsers;
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto) {
+        validateID(userDto.getId());
+        validate(userDto);
+        StoredUser user = storage.updateUser(toStoredUser(userDto));
+        log.info("User with ID{} update", user.id());
+        return toUserDto(user);
+    }
+
+    @Override
+    public UserDto getUserById(Integer id) {
+        validateID(id);
+        return toUserDto(storage.getUser(id));
+    }
+
+    @Override
+    public List<Integer> getUserBookIds(Integer id) {
+        validateID(id);
+        return Arrays.stream(storage.getBookIds(id)).boxed().toList();
+    }
+
+    @Override
+    public List<UserDto> getUsersByIds(List<Integer> ids) {
+        return storage.getUsers(ids.stream().mapToInt(Integer::intValue).toArray())
+                .stream()
+                .map(this::toUserDto)
+                .toList();
+    }
+
+    @Override
+    public List<UserDto> findUsers(UserFilterDto filter, Integer afterId, int limit) {
+        return storage.findUsers(afterId == null ? 0 : afterId, matches(filter), limit)
+                .stream()
+                .map(this::toUserDto)
+                .toList();
+    }
+
+    @Override
+    public void deleteUserById(Integer id) {
+        validateID(id);
+        storage.deleteUser(id);
+        log.info("Person with ID{} deleted", id);
+    }
+
+    private Predicate<StoredUser> matches(UserFilterDto filter) {
+        return user -> (filter.getTitle() == null || filter.getTitle().equals(user.title()))
+                && (filter.getMinAge() == null || user.age() >= filter.getMinAge())
+                && (filter.getMaxAge() == null || user.age() <= filter.getMaxAge());
+    }
+
+    private StoredUser toStoredUser(UserDto userDto) {
+        return new StoredUser(userDto.getId() == null ? 0 : userDto.getId(),
+                userDto.getFullName(), userDto.getTitle(), userDto.getAge());
+    }
+
+    private UserDto toUserDto(StoredUser user) {
+        return new UserDto(user.id(), user.fullName(), user.title(), user.age());
+    }
+
+    private void validate(UserDto userDto) {
+        if (!PersonValid.isValidPerson(userDto)) {
+            throw new NotValidException("Not valid:  " + userDto);
+        }
+    }
+
+    private void validateID(Integer id) {
+        if (id == null) {
+            throw new NotValidException("ID can not be null");
+        }
+    }
+}
@@ -1,71 +1,121 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.config.BackendProfiles;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.service.UserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Service;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Objects;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @Service
+@Qualifier("userBackend")
+@Profile(BackendProfiles.DATABASE)
 public class UserServiceImplTemplate implements UserService {
     private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
 
     private static final String INSERT_SQL = """
-                                             INSERT INTO PERSON(FULL_NAME, TITLE, AGE) VALUES (?,?,?)
+                                             INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) VALUES (?,?,?,?)
                                              """;
+    /**
+     * Частичное обновление одним запросом: {@code null} оставляет значение столбца, версия проверяется,
+     * только если она передана.
+     */
     private static final String UPDATE_SQL = """
                                              UPDATE PERSON SET 
-                                             FULL_NAME = ?, TITLE = ?, AGE = ? 
-                                             WHERE ID = ?
+                                             FULL_NAME = COALESCE(?, FULL_NAME), 
+                                             TITLE = COALESCE(?, TITLE), 
+                                             AGE = COALESCE(?, AGE), 
+                                             VERSION = VERSION + 1 
+                                             WHERE ID = ? AND VERSION = COALESCE(?, VERSION) 
+                                             RETURNING *
                                              """;
+    private static final int[] UPDATE_SQL_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.INTEGER};
+    private final static String EXISTS_SQL = "SELECT EXISTS(SELECT 1 FROM PERSON WHERE ID = ?)";
     private final static String GET_BY_ID = "SELECT * FROM PERSON WHERE ID = ?";
     private final static String DELETE_SQL = "DELETE FROM PERSON WHERE ID = ?";
-    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate) {
+    private final static String GET_BY_IDS = "SELECT * FROM PERSON WHERE ID = ANY(?)";
+    private final static String FIND_PAGE_SQL = "SELECT * FROM PERSON WHERE ID > ?";
+    private final static String GET_BOOK_IDS_SQL = """
+                                                   SELECT P.ID, B.ID AS BOOK_ID FROM PERSON P
+                                                   LEFT JOIN BOOK B ON B.USER_ID = P.ID
+                                                   WHERE P.ID = ?
+                                                   ORDER BY B.ID
+                                                   """;
+    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate,
+                                   SequenceIdAllocator idAllocator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public UserDto createUser(UserDto userDto) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                    ps.setString(1, userDto.getFullName());
-                    ps.setString(2, userDto.getTitle());
-                    ps.setLong(3, userDto.getAge());
-                    return ps;
-                }, keyHolder);
-
-        userDto.setId((int) Objects.requireNonNull(keyHolder.getKey()).longValue());
+        userDto.setId(idAllocator.nextId());
+        jdbcTemplate.update(INSERT_SQL, userDto.getId(), userDto.getFullName(), userDto.getTitle(), userDto.getAge());
         return userDto;
     }
 
+    @Override
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        if (userDtos.isEmpty()) {
+            return userDtos;
+        }
+        List<Integer> ids = idAllocator.nextIds(userDtos.size());
+        for (int i = 0; i < userDtos.size(); i++) {
+            userDtos.get(i).setId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, userDtos, userDtos.size(), (ps, userDto) -> {
+            ps.setInt(1, userDto.getId());
+            ps.setString(2, userDto.getFullName());
+            ps.setString(3, userDto.getTitle());
+            ps.setLong(4, userDto.getAge());
+        });
+        log.info("Created {} persons in one batch", userDtos.size());
+        return userDtos;
+    }
+
+    /**
+     * Обновляет непустые поля пользователя одним запросом и возвращает строку после обновления. Поля
+     * {@code null} и возраст 0 не меняются, как в {@link UserServiceImpl#updateUser}. Версия из {@code userDto},
+     * если она есть, должна совпасть с версией строки, иначе бросается {@link OptimisticLockingFailureException}.
+     */
     @Override
     public UserDto updateUser(UserDto userDto) {
         validateID(userDto.getId());
-        if (getUserById(userDto.getId()) != null) {
-            jdbcTemplate.update(UPDATE_SQL,
-                    userDto.getFullName(),
-                    userDto.getTitle(),
-                    userDto.getAge(),
-                    userDto.getId());
-            log.info("User with ID{} update", userDto.getId());
-            return userDto;
-        } else {
+        List<UserDto> updated = jdbcTemplate.query(UPDATE_SQL,
+                new Object[]{
+                        userDto.getFullName(),
+                        userDto.getTitle(),
+                        userDto.getAge() == 0 ? null : userDto.getAge(),
+                        userDto.getId(),
+                        userDto.getVersion()},
+                UPDATE_SQL_TYPES,
+                UserServiceImplTemplate::mapPerson);
+        if (updated.isEmpty()) {
+            if (userDto.getVersion() != null
+                    && Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, userDto.getId()))) {
+                throw new OptimisticLockingFailureException("Person with ID: " + userDto.getId()
+                        + " was changed concurrently, expected version " + userDto.getVersion());
+            }
             throw new NotFoundException("User with ID: " + userDto.getId() + "not found");
         }
+        log.info("User with ID{} update", userDto.getId());
+        return updated.get(0);
     }
 
     @Override
@@ -78,7 +128,8 @@ public class UserServiceImplTemplate implements UserService {
                     personRow.getInt("ID"),
                     personRow.getString("FULL_NAME"),
                     personRow.getString("TITLE"),
-                    personRow.getInt("AGE")
+                    personRow.getInt("AGE"),
+                    personRow.getInt("VERSION")
             );
             log.info("Person with ID{} found", id);
         } else {
@@ -87,6 +138,67 @@ public class UserServiceImplTemplate implements UserService {
         return userDto;
     }
 
+    @Override
+    public List<Integer> getUserBookIds(Integer id) {
+        validateID(id);
+        List<Integer> bookIds = new ArrayList<>();
+        Boolean userExists = jdbcTemplate.query(GET_BOOK_IDS_SQL, rs -> {
+            boolean found = false;
+            while (rs.next()) {
+                found = true;
+                int bookId = rs.getInt("BOOK_ID");
+                if (!rs.wasNull()) {
+                    bookIds.add(bookId);
+                }
+            }
+            return found;
+        }, id);
+        if (!Boolean.TRUE.equals(userExists)) {
+            throw new NotFoundException("Person with ID: " + id + "not found");
+        }
+        log.info("Person with ID{} has books {}", id, bookIds);
+        return bookIds;
+    }
+
+    @Override
+    public List<UserDto> getUsersByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<UserDto> users = jdbcTemplate.query(GET_BY_IDS, UserServiceImplTemplate::mapPerson,
+                (Object) ids.toArray(Integer[]::new));
+        log.info("Found {} of {} persons", users.size(), ids.size());
+        return users;
+    }
+
+    @Override
+    public List<UserDto> findUsers(UserFilterDto filter, Integer afterId, int limit) {
+        StringBuilder sql = new StringBuilder(FIND_PAGE_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(afterId == null ? 0 : afterId);
+        if (filter.getTitle() != null) {
+            sql.append(" AND TITLE = ?");
+            args.add(filter.getTitle());
+        }
+        if (filter.getMinAge() != null && filter.getMinAge().equals(filter.getMaxAge())) {
+            // точный возраст - равенство, его обслуживает индекс (AGE, ID) в порядке ID
+            sql.append(" AND AGE = ?");
+            args.add(filter.getMinAge());
+        } else {
+            if (filter.getMinAge() != null) {
+                sql.append(" AND AGE >= ?");
+                args.add(filter.getMinAge());
+            }
+            if (filter.getMaxAge() != null) {
+                sql.append(" AND AGE <= ?");
+                args.add(filter.getMaxAge());
+            }
+        }
+        sql.append(" ORDER BY ID LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), UserServiceImplTemplate::mapPerson, args.toArray());
+    }
+
     @Override
     public void deleteUserById(Integer id) {
         validateID(id);
@@ -97,6 +209,15 @@ public class UserServiceImplTemplate implements UserService {
         }
     }
 
+    private static UserDto mapPerson(ResultSet rs, int rowNum) throws SQLException {
+        return new UserDto(
+                rs.getInt("ID"),
+                rs.getString("FULL_NAME"),
+                rs.getString("TITLE"),
+                rs.getInt("AGE"),
+                rs.getInt("VERSION"));
+    }
+
     private void validateID(Integer id) {
         if (id == null) {
             throw new NotValidException("ID can not be null");
@@ -0,0 +1,29 @@
+package com.edu.ulab.app.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Фиксация каталога на диске. Создание и переименование файла меняют запись в каталоге, и без
+ * {@code fsync} самого каталога после сбоя питания файл может исчезнуть или вернуться к старому имени.
+ */
+final class Directories {
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private Directories() {
+    }
+
+    static void force(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException exc) {
+            // на Windows каталог нельзя открыть как файл, изменения каталога там фиксируются вместе с файлом
+            if (!WINDOWS) {
+                throw exc;
+            }
+        }
+    }
+}
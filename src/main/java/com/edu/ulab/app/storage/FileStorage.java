@@ -0,0 +1,350 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.exception.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * {@link Storage}, переживающее перезапуск. Каждое изменение пишется в журнал {@link Journal}, и данные
+ * в памяти меняются только после того, как запись зафиксирована на диске. Ожидание идёт под блокировками
+ * сегментов, поэтому читатели не видят незафиксированных изменений, а фиксации писателей разных сегментов
+ * объединяются. Если журнал не принял или не зафиксировал запись, данные в памяти не меняются, а следующие
+ * изменения отклоняются.
+ * <p>
+ * Когда журнал вырастает больше порога, данные сжимаются в снимок {@link SnapshotFile}, после чего
+ * старые поколения журнала удаляются. При старте загружается снимок и проигрываются журналы,
+ * начатые после него.
+ * <p>
+ * Запись журнала: длина, тело и CRC32 тела. Тело - все изменения одной операции подряд, поэтому пачка
+ * восстанавливается целиком или не восстанавливается вовсе. Оборванная запись в конце последнего журнала
+ * отбрасывается.
+ */
+@Slf4j
+public class FileStorage extends Storage implements Closeable {
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+
+    private static final byte USER_WRITTEN = 1;
+    private static final byte USER_DELETED = 2;
+    private static final byte BOOK_WRITTEN = 3;
+    private static final byte BOOK_DELETED = 4;
+
+    private final Path directory;
+    private final long compactionThreshold;
+    private final ScheduledExecutorService compactionExecutor;
+    /**
+     * Пока журнал не открыт, идёт восстановление, и изменения в него не пишутся.
+     */
+    private final Journal journal;
+
+    public FileStorage(int stripes, Path directory, long compactionThreshold, Duration compactionInterval)
+            throws IOException {
+        this(stripes, directory, compactionThreshold, compactionInterval, Journal.Fsync.DEFAULT);
+    }
+
+    FileStorage(int stripes, Path directory, long compactionThreshold, Duration compactionInterval,
+                Journal.Fsync fsync) throws IOException {
+        super(stripes);
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(directory);
+        this.journal = new Journal(directory, recover(), fsync);
+
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactionExecutor.scheduleWithFixedDelay(this::compactIfNeeded,
+                compactionInterval.toMillis(), compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Пишет снимок и удаляет поколения журнала, которые в него вошли.
+     */
+    public void compact() throws IOException {
+        List<StoredUser> users = new ArrayList<>();
+        List<StoredBook> books = new ArrayList<>();
+        long[] generation = new long[1];
+        int[] lastIds = new int[2];
+        IOException[] rotateFailure = new IOException[1];
+        readAll(() -> {
+            forEachUser(users::add);
+            forEachBook(books::add);
+            lastIds[0] = lastUserId();
+            lastIds[1] = lastBookId();
+            try {
+                generation[0] = journal.rotate();
+            } catch (IOException exc) {
+                rotateFailure[0] = exc;
+            }
+        });
+        if (rotateFailure[0] != null) {
+            throw rotateFailure[0];
+        }
+        SnapshotFile.write(directory.resolve(SNAPSHOT_FILE),
+                new SnapshotFile.Header(generation[0], lastIds[0], lastIds[1]), users, books);
+        for (JournalFile journalFile : journalFiles()) {
+            if (journalFile.generation() < generation[0]) {
+                Files.delete(journalFile.path());
+            }
+        }
+        log.info("Compacted storage into snapshot with {} users and {} books", users.size(), books.size());
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    @Override
+    protected void beforeUsersWritten(List<StoredUser> users) {
+        if (journal != null) {
+            write(frame(users.stream().map(FileStorage::userWritten).toList()));
+        }
+    }
+
+    @Override
+    protected void beforeUserDeleted(int id) {
+        if (journal != null) {
+            write(frame(List.of(deleted(USER_DELETED, id))));
+        }
+    }
+
+    @Override
+    protected void beforeBooksWritten(List<StoredBook> books) {
+        if (journal != null) {
+            write(frame(books.stream().map(FileStorage::bookWritten).toList()));
+        }
+    }
+
+    @Override
+    protected void beforeBooksDeleted(int[] ids) {
+        if (journal != null) {
+            List<byte[]> entries = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                entries.add(deleted(BOOK_DELETED, id));
+            }
+            write(frame(entries));
+        }
+    }
+
+    private void write(byte[] record) {
+        journal.awaitDurable(journal.append(record));
+    }
+
+    /**
+     * Загружает снимок и проигрывает журналы после него.
+     *
+     * @return поколение журнала, в которое продолжается запись
+     */
+    private long recover() throws IOException {
+        SnapshotFile.Header header = SnapshotFile.read(directory.resolve(SNAPSHOT_FILE),
+                this::restoreUser, this::restoreBook);
+        long generation = 0;
+        if (header != null) {
+            restoreSequences(header.lastUserId(), header.lastBookId());
+            generation = header.journalGeneration();
+        }
+        List<JournalFile> journalFiles = journalFiles();
+        for (int i = 0; i < journalFiles.size(); i++) {
+            JournalFile journalFile = journalFiles.get(i);
+            if (journalFile.generation() < generation) {
+                Files.delete(journalFile.path());
+                continue;
+            }
+            replay(journalFile.path(), i == journalFiles.size() - 1);
+            generation = journalFile.generation();
+        }
+        log.info("Recovered storage from {}: last user ID {}, last book ID {}", directory, lastUserId(), lastBookId());
+        return generation;
+    }
+
+    private void replay(Path path, boolean lastJournal) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int position = 0;
+            while (position < buffer.limit()) {
+                ByteBuffer body = readFrame(buffer, position);
+                if (body == null) {
+                    if (!lastJournal) {
+                        throw new IllegalStateException("Corrupted storage journal " + path + " at " + position);
+                    }
+                    log.warn("Truncated torn tail of storage journal {} at {}", path, position);
+                    channel.truncate(position);
+                    break;
+                }
+                while (body.hasRemaining()) {
+                    apply(body);
+                }
+                position += body.limit() + 2 * Integer.BYTES;
+                records++;
+            }
+        }
+        log.info("Replayed {} records from storage journal {}", records, path);
+    }
+
+    /**
+     * @return тело записи или {@code null}, если запись оборвана или повреждена
+     */
+    private ByteBuffer readFrame(MappedByteBuffer buffer, int position) {
+        if (buffer.limit() - position < Integer.BYTES) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || buffer.limit() - position - 2 * Integer.BYTES < length) {
+            return null;
+        }
+        ByteBuffer body = buffer.slice(position + Integer.BYTES, length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES + length)) {
+            return null;
+        }
+        return body;
+    }
+
+    private void apply(ByteBuffer body) {
+        byte type = body.get();
+        switch (type) {
+            case USER_WRITTEN -> {
+                int id = body.getInt();
+                int age = body.getInt();
+                restoreUser(new StoredUser(id, getString(body), getString(body), age));
+            }
+            case USER_DELETED -> {
+                try {
+                    super.deleteUser(body.getInt());
+                } catch (NotFoundException exc) {
+                    log.warn("Replayed deletion of missing user: {}", exc.getMessage());
+                }
+            }
+            case BOOK_WRITTEN -> {
+                int id = body.getInt();
+                int userId = body.getInt();
+                long pageCount = body.getLong();
+                restoreBook(new StoredBook(id, userId, getString(body), getString(body), pageCount));
+            }
+            case BOOK_DELETED -> super.deleteBooks(new int[]{body.getInt()});
+            default -> throw new IllegalStateException("Unknown storage journal record type: " + type);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journal.generationBytes() < compactionThreshold) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException | RuntimeException exc) {
+            log.error("Failed to compact storage: {}", exc.getMessage());
+        }
+    }
+
+    private List<JournalFile> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(path -> {
+                        Matcher matcher = JOURNAL_FILE.matcher(path.getFileName().toString());
+                        return matcher.matches() ? new JournalFile(Long.parseLong(matcher.group(1)), path) : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparingLong(JournalFile::generation))
+                    .toList();
+        }
+    }
+
+    private static byte[] userWritten(StoredUser user) {
+        byte[] fullName = utf8(user.fullName());
+        byte[] title = utf8(user.title());
+        ByteBuffer entry = ByteBuffer.allocate(1 + 2 * Integer.BYTES + stringSize(fullName) + stringSize(title));
+        entry.put(USER_WRITTEN).putInt(user.id()).putInt(user.age());
+        putString(entry, fullName);
+        putString(entry, title);
+        return entry.array();
+    }
+
+    private static byte[] bookWritten(StoredBook book) {
+        byte[] title = utf8(book.title());
+        byte[] author = utf8(book.author());
+        ByteBuffer entry = ByteBuffer.allocate(1 + 2 * Integer.BYTES + Long.BYTES
+                + stringSize(title) + stringSize(author));
+        entry.put(BOOK_WRITTEN).putInt(book.id()).putInt(book.userId()).putLong(book.pageCount());
+        putString(entry, title);
+        putString(entry, author);
+        return entry.array();
+    }
+
+    private static byte[] deleted(byte type, int id) {
+        return ByteBuffer.allocate(1 + Integer.BYTES).put(type).putInt(id).array();
+    }
+
+    /**
+     * Одна запись журнала из изменений одной операции.
+     */
+    private static byte[] frame(List<byte[]> entries) {
+        int length = entries.stream().mapToInt(entry -> entry.length).sum();
+        ByteBuffer frame = ByteBuffer.allocate(length + 2 * Integer.BYTES).putInt(length);
+        entries.forEach(frame::put);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), Integer.BYTES, length);
+        return frame.putInt((int) crc.getValue()).array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private record JournalFile(long generation, Path path) {
+    }
+}
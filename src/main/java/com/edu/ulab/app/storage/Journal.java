@@ -0,0 +1,225 @@
+package com.edu.ulab.app.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Журнал изменений {@link FileStorage} с групповой фиксацией. Записи копятся в буфере, отдельный поток
+ * пишет всё накопленное одним вызовом и фиксирует его одним {@link FileChannel#force(boolean)}, а писатели
+ * ждут фиксации своей записи в {@link #awaitDurable(long)}. Чем больше параллельных писателей, тем больше записей
+ * приходится на один {@code force}.
+ * <p>
+ * Если запись или фиксация не удалась, незафиксированный хвост файла отрезается, чтобы перезапуск не проиграл
+ * изменения, о неудаче которых писатели уже узнали, и журнал отклоняет все следующие изменения.
+ * <p>
+ * Журнал разбит на поколения: при сжатии начинается новый файл, а старые удаляются после записи снимка.
+ */
+@Slf4j
+class Journal implements Closeable {
+    private final Path directory;
+    private final Fsync fsync;
+    private final Object monitor = new Object();
+    private final Thread flusher;
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private long generation;
+    private long generationBytes;
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    Journal(Path directory, long generation, Fsync fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.generation = generation;
+        this.channel = open(generation);
+        this.generationBytes = channel.size();
+        this.flusher = new Thread(this::flushLoop, "storage-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    static Path path(Path directory, long generation) {
+        return directory.resolve(String.format("journal-%010d.log", generation));
+    }
+
+    /**
+     * Добавляет запись в буфер, не дожидаясь записи на диск. После ошибки записи журнал
+     * отклоняет все изменения.
+     *
+     * @return номер записи для {@link #awaitDurable(long)}
+     */
+    long append(byte[] record) {
+        synchronized (monitor) {
+            if (closed) {
+                throw new IllegalStateException("Storage journal is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Storage journal failed", failure);
+            }
+            pending.writeBytes(record);
+            appendedSequence++;
+            generationBytes += record.length;
+            monitor.notifyAll();
+            return appendedSequence;
+        }
+    }
+
+    /**
+     * Ждёт, пока запись с переданным номером и все предыдущие окажутся на диске.
+     */
+    void awaitDurable(long target) {
+        synchronized (monitor) {
+            while (durableSequence < target && failure == null) {
+                waitOnMonitor();
+            }
+            if (durableSequence < target) {
+                throw new UncheckedIOException("Storage journal failed", failure);
+            }
+        }
+    }
+
+    long generationBytes() {
+        synchronized (monitor) {
+            return generationBytes;
+        }
+    }
+
+    /**
+     * Дожидается фиксации текущего поколения и начинает новое.
+     *
+     * @return номер нового поколения
+     */
+    long rotate() throws IOException {
+        synchronized (monitor) {
+            awaitDurable(appendedSequence);
+            channel.close();
+            generation++;
+            channel = open(generation);
+            generationBytes = 0;
+            log.info("Started storage journal generation {}", generation);
+            return generation;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (monitor) {
+            closed = true;
+            monitor.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (monitor) {
+            channel.close();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            byte[] batch;
+            long target;
+            FileChannel batchChannel;
+            synchronized (monitor) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException exc) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                batch = pending.toByteArray();
+                pending.reset();
+                target = appendedSequence;
+                batchChannel = channel;
+            }
+            long durableSize = -1;
+            try {
+                durableSize = batchChannel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    batchChannel.write(buffer);
+                }
+                fsync.force(batchChannel);
+                synchronized (monitor) {
+                    durableSequence = target;
+                    monitor.notifyAll();
+                }
+            } catch (IOException exc) {
+                log.error("Failed to write storage journal: {}", exc.getMessage());
+                truncate(batchChannel, durableSize);
+                synchronized (monitor) {
+                    failure = exc;
+                    monitor.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Отрезает записи неудавшейся пачки: писатели получили ошибку, и при перезапуске их изменений быть не должно.
+     */
+    private static void truncate(FileChannel channel, long durableSize) {
+        if (durableSize < 0) {
+            return;
+        }
+        try {
+            channel.truncate(durableSize);
+            channel.force(false);
+        } catch (IOException exc) {
+            log.error("Failed to truncate storage journal after write failure: {}", exc.getMessage());
+        }
+    }
+
+    /**
+     * Открывает файл поколения и фиксирует каталог, чтобы созданный файл пережил сбой питания вместе
+     * с записями, зафиксированными в нём.
+     */
+    private FileChannel open(long generation) throws IOException {
+        FileChannel opened = FileChannel.open(path(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            Directories.force(directory);
+        } catch (IOException exc) {
+            opened.close();
+            throw exc;
+        }
+        return opened;
+    }
+
+    /**
+     * Фиксация файла журнала на диске.
+     */
+    @FunctionalInterface
+    interface Fsync {
+        Fsync DEFAULT = channel -> channel.force(false);
+
+        void force(FileChannel channel) throws IOException;
+    }
+
+    private void waitOnMonitor() {
+        try {
+            monitor.wait();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for storage journal");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.edu.ulab.app.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Снимок {@link FileStorage}, который пишется и читается через отображение файла в память.
+ * <p>
+ * Формат: заголовок, затем записи пользователей и книг фиксированной длины, затем куча строк.
+ * Числовые поля читаются прямо из отображённой области по смещению записи, строки хранятся в куче
+ * как длина и байты UTF-8, а в записи лежит их смещение в куче ({@code -1} для {@code null}).
+ * <pre>
+ * header: magic int, version int, journalGeneration long, lastUserId int, lastBookId int, users int, books int
+ * user:   id int, age int, fullName int, title int
+ * book:   id int, userId int, pageCount long, title int, author int
+ * </pre>
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x554C4142;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int USER_SIZE = 16;
+    private static final int BOOK_SIZE = 24;
+    private static final int NULL_STRING = -1;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Заголовок снимка: с какого поколения журнала продолжать восстановление и последние выданные идентификаторы.
+     */
+    record Header(long journalGeneration, int lastUserId, int lastBookId) {
+    }
+
+    /**
+     * Пишет снимок во временный файл и атомарно подменяет им предыдущий. Переименование фиксируется
+     * на диске до возврата, иначе после сбоя питания журналы уже удалены, а снимок остался старым.
+     */
+    static void write(Path path, Header header, List<StoredUser> users, List<StoredBook> books) throws IOException {
+        long heapSize = 0;
+        for (StoredUser user : users) {
+            heapSize += stringSize(user.fullName()) + stringSize(user.title());
+        }
+        for (StoredBook book : books) {
+            heapSize += stringSize(book.title()) + stringSize(book.author());
+        }
+        long heapStart = HEADER_SIZE + (long) users.size() * USER_SIZE + (long) books.size() * BOOK_SIZE;
+        long size = heapStart + heapSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Storage snapshot exceeds 2GB: " + size + " bytes");
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(header.journalGeneration())
+                    .putInt(header.lastUserId())
+                    .putInt(header.lastBookId())
+                    .putInt(users.size())
+                    .putInt(books.size());
+            int heapPosition = (int) heapStart;
+            for (StoredUser user : users) {
+                buffer.putInt(user.id()).putInt(user.age());
+                heapPosition = putString(buffer, heapStart, heapPosition, user.fullName());
+                heapPosition = putString(buffer, heapStart, heapPosition, user.title());
+            }
+            for (StoredBook book : books) {
+                buffer.putInt(book.id()).putInt(book.userId()).putLong(book.pageCount());
+                heapPosition = putString(buffer, heapStart, heapPosition, book.title());
+                heapPosition = putString(buffer, heapStart, heapPosition, book.author());
+            }
+            buffer.force();
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Directories.force(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Передаёт пользователей и книги снимка в обработчики.
+     *
+     * @return заголовок снимка или {@code null}, если снимка нет
+     */
+    static Header read(Path path, Consumer<StoredUser> users, Consumer<StoredBook> books) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException("Unsupported storage snapshot format: " + path);
+            }
+            Header header = new Header(buffer.getLong(8), buffer.getInt(16), buffer.getInt(20));
+            int userCount = buffer.getInt(24);
+            int bookCount = buffer.getInt(28);
+            int heapStart = HEADER_SIZE + userCount * USER_SIZE + bookCount * BOOK_SIZE;
+
+            int position = HEADER_SIZE;
+            for (int i = 0; i < userCount; i++, position += USER_SIZE) {
+                users.accept(new StoredUser(
+                        buffer.getInt(position),
+                        getString(buffer, heapStart, buffer.getInt(position + 8)),
+                        getString(buffer, heapStart, buffer.getInt(position + 12)),
+                        buffer.getInt(position + 4)));
+            }
+            for (int i = 0; i < bookCount; i++, position += BOOK_SIZE) {
+                books.accept(new StoredBook(
+                        buffer.getInt(position),
+                        buffer.getInt(position + 4),
+                        getString(buffer, heapStart, buffer.getInt(position + 16)),
+                        getString(buffer, heapStart, buffer.getInt(position + 20)),
+                        buffer.getLong(position + 8)));
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Дописывает строку в кучу и кладёт её смещение в текущую запись.
+     *
+     * @return позиция кучи после строки
+     */
+    private static int putString(MappedByteBuffer buffer, long heapStart, int heapPosition, String value) {
+        if (value == null) {
+            buffer.putInt(NULL_STRING);
+            return heapPosition;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt((int) (heapPosition - heapStart));
+        buffer.putInt(heapPosition, bytes.length);
+        buffer.put(heapPosition + Integer.BYTES, bytes);
+        return heapPosition + Integer.BYTES + bytes.length;
+    }
+
+    private static String getString(MappedByteBuffer buffer, int heapStart, int offset) {
+        if (offset == NULL_STRING) {
+            return null;
+        }
+        int position = heapStart + offset;
+        return StandardCharsets.UTF_8.decode(buffer.slice(position + Integer.BYTES, buffer.getInt(position))).toString();
+    }
+
+    private static long stringSize(String value) {
+        return value == null ? 0 : Integer.BYTES + utf8Length(value);
+    }
+
+    /**
+     * Длина строки в UTF-8 без кодирования; одиночный суррогат, как и в {@link String#getBytes}, заменяется одним байтом.
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                length += 1;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(ch)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -1,11 +1,589 @@
 package com.edu.ulab.app.storage;
 
+import com.edu.ulab.app.exception.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище пользователей и книг в памяти. Идентификаторы генерируются счётчиками, связь пользователя
+ * с книгами хранится как отсортированный массив идентификаторов книг.
+ * <p>
+ * Данные разбиты на сегменты по идентификатору, у каждого сегмента своя блокировка, поэтому
+ * запись разных пользователей не конкурирует. Операция, затрагивающая несколько сегментов, берёт их
+ * блокировки в порядке возрастания номера сегмента.
+ */
 public class Storage {
-    //todo создать хранилище в котором будут содержаться данные
-    // сделать абстракции через которые можно будет производить операции с хранилищем
-    // продумать логику поиска и сохранения
-    // продумать возможные ошибки
-    // учесть, что при сохранеии юзера или книги, должен генерироваться идентификатор
-    // продумать что у узера может быть много книг и нужно создать эту связь
-    // так же учесть, что методы хранилища принимают друго тип данных - учесть это в абстракции
+    private static final int[] NO_IDS = new int[0];
+    private static final int SEGMENT_CAPACITY = 1024;
+
+    /**
+     * Владелец книги, идентификатор которой передан.
+     */
+    private static final Related BOOK_OWNER = (segment, bookId) -> {
+        StoredBook book = segment.books.get(bookId);
+        return book == null ? NO_IDS : new int[]{book.userId()};
+    };
+
+    /**
+     * Книги пользователя, идентификатор которого передан.
+     */
+    private static final Related USER_BOOKS = Segment::bookIds;
+
+    private final Segment[] segments;
+    private final AtomicInteger userSequence = new AtomicInteger();
+    private final AtomicInteger bookSequence = new AtomicInteger();
+
+    public Storage(int stripes) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two: " + stripes);
+        }
+        segments = new Segment[stripes];
+        for (int i = 0; i < stripes; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public StoredUser insertUser(StoredUser user) {
+        return insertUsers(List.of(user)).get(0);
+    }
+
+    /**
+     * Сохраняет пользователей, присваивая им новые идентификаторы.
+     */
+    public List<StoredUser> insertUsers(List<StoredUser> users) {
+        List<StoredUser> inserted = new ArrayList<>(users.size());
+        for (StoredUser user : users) {
+            inserted.add(user.withId(userSequence.incrementAndGet()));
+        }
+        boolean[] locked = lock(true, inserted.stream().mapToInt(StoredUser::id).toArray());
+        try {
+            beforeUsersWritten(inserted);
+            for (StoredUser user : inserted) {
+                segment(user.id()).users.put(user.id(), user);
+            }
+        } finally {
+            unlock(true, locked);
+        }
+        return inserted;
+    }
+
+    public StoredUser updateUser(StoredUser user) {
+        Segment segment = segment(user.id());
+        segment.lock.writeLock().lock();
+        try {
+            if (!segment.users.containsKey(user.id())) {
+                throw userNotFound(user.id());
+            }
+            beforeUsersWritten(List.of(user));
+            segment.users.put(user.id(), user);
+            return user;
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    public StoredUser getUser(int id) {
+        StoredUser user = findUser(id);
+        if (user == null) {
+            throw userNotFound(id);
+        }
+        return user;
+    }
+
+    /**
+     * Идентификаторы книг пользователя по возрастанию.
+     */
+    public int[] getBookIds(int userId) {
+        Segment segment = segment(userId);
+        segment.lock.readLock().lock();
+        try {
+            if (!segment.users.containsKey(userId)) {
+                throw userNotFound(userId);
+            }
+            return segment.bookIds(userId).clone();
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пользователи с переданными идентификаторами в том же порядке, отсутствующие пропускаются.
+     * Все пользователи читаются под общими блокировками чтения их сегментов, то есть на один момент времени.
+     */
+    public List<StoredUser> getUsers(int[] ids) {
+        boolean[] locked = lock(false, ids);
+        try {
+            List<StoredUser> users = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                StoredUser user = segment(id).users.get(id);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+            return users;
+        } finally {
+            unlock(false, locked);
+        }
+    }
+
+    /**
+     * Идентификаторы книг по возрастанию для каждого из переданных пользователей, у которого есть книги.
+     */
+    public Map<Integer, int[]> getBookIdsByUsers(int[] userIds) {
+        boolean[] locked = lock(false, userIds);
+        try {
+            Map<Integer, int[]> bookIds = new HashMap<>();
+            for (int userId : userIds) {
+                int[] userBookIds = segment(userId).bookIds(userId);
+                if (userBookIds.length > 0) {
+                    bookIds.put(userId, userBookIds.clone());
+                }
+            }
+            return bookIds;
+        } finally {
+            unlock(false, locked);
+        }
+    }
+
+    /**
+     * Страница пользователей с идентификатором больше {@code afterId} по возрастанию идентификатора.
+     * Каждый пользователь читается под своей блокировкой, поэтому страница не является снимком
+     * на один момент времени - так же, как страница из read committed транзакции.
+     */
+    public List<StoredUser> findUsers(int afterId, Predicate<StoredUser> filter, int limit) {
+        List<StoredUser> page = new ArrayList<>(Math.min(limit, 64));
+        int lastId = userSequence.get();
+        for (int id = Math.max(afterId, 0) + 1; id <= lastId && page.size() < limit; id++) {
+            StoredUser user = findUser(id);
+            if (user != null && filter.test(user)) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Удаляет пользователя вместе с его книгами.
+     */
+    public void deleteUser(int id) {
+        boolean[] locked = lockWithRelated(true, new int[]{id}, NO_IDS, USER_BOOKS);
+        try {
+            Segment segment = segment(id);
+            if (!segment.users.containsKey(id)) {
+                throw userNotFound(id);
+            }
+            beforeUserDeleted(id);
+            segment.users.remove(id);
+            for (int bookId : segment.bookIds(id)) {
+                segment(bookId).books.remove(bookId);
+            }
+            segment.bookIdsByUser.remove(id);
+        } finally {
+            unlock(true, locked);
+        }
+    }
+
+    public StoredBook insertBook(StoredBook book) {
+        return insertBooks(List.of(book)).get(0);
+    }
+
+    /**
+     * Сохраняет книги, присваивая им новые идентификаторы. Если хотя бы одного владельца нет,
+     * не сохраняется ни одна книга.
+     */
+    public List<StoredBook> insertBooks(List<StoredBook> books) {
+        if (books.isEmpty()) {
+            return List.of();
+        }
+        List<StoredBook> inserted = new ArrayList<>(books.size());
+        for (StoredBook book : books) {
+            inserted.add(book.withId(bookSequence.incrementAndGet()));
+        }
+        boolean[] locked = lock(true, IntStream.concat(
+                inserted.stream().mapToInt(StoredBook::id),
+                inserted.stream().mapToInt(StoredBook::userId)).toArray());
+        try {
+            for (StoredBook book : inserted) {
+                if (!segment(book.userId()).users.containsKey(book.userId())) {
+                    throw userNotFound(book.userId());
+                }
+            }
+            beforeBooksWritten(inserted);
+            for (StoredBook book : inserted) {
+                segment(book.id()).books.put(book.id(), book);
+                segment(book.userId()).addBookId(book.userId(), book.id());
+            }
+        } finally {
+            unlock(true, locked);
+        }
+        return inserted;
+    }
+
+    /**
+     * Заменяет книги целиком, в том числе может перенести книгу к другому владельцу.
+     * Если хотя бы одной книги или владельца нет, не изменяется ни одна книга.
+     */
+    public List<StoredBook> updateBooks(List<StoredBook> books) {
+        if (books.isEmpty()) {
+            return books;
+        }
+        boolean[] locked = lockWithRelated(true,
+                books.stream().mapToInt(StoredBook::id).toArray(),
+                books.stream().mapToInt(StoredBook::userId).toArray(),
+                BOOK_OWNER);
+        try {
+            for (StoredBook book : books) {
+                if (!segment(book.id()).books.containsKey(book.id())) {
+                    throw bookNotFound(book.id());
+                }
+                if (!segment(book.userId()).users.containsKey(book.userId())) {
+                    throw userNotFound(book.userId());
+                }
+            }
+            beforeBooksWritten(books);
+            for (StoredBook book : books) {
+                StoredBook previous = segment(book.id()).books.put(book.id(), book);
+                if (previous.userId() != book.userId()) {
+                    segment(previous.userId()).removeBookId(previous.userId(), book.id());
+                    segment(book.userId()).addBookId(book.userId(), book.id());
+                }
+            }
+        } finally {
+            unlock(true, locked);
+        }
+        return books;
+    }
+
+    public StoredBook getBook(int id) {
+        Segment segment = segment(id);
+        segment.lock.readLock().lock();
+        try {
+            StoredBook book = segment.books.get(id);
+            if (book == null) {
+                throw bookNotFound(id);
+            }
+            return book;
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Книги пользователя по возрастанию идентификатора, прочитанные согласованно с его списком книг.
+     * Для несуществующего пользователя возвращается пустой список.
+     */
+    public List<StoredBook> getBooksByUser(int userId) {
+        boolean[] locked = lockWithRelated(false, new int[]{userId}, NO_IDS, USER_BOOKS);
+        try {
+            int[] bookIds = segment(userId).bookIds(userId);
+            List<StoredBook> books = new ArrayList<>(bookIds.length);
+            for (int bookId : bookIds) {
+                books.add(segment(bookId).books.get(bookId));
+            }
+            return books;
+        } finally {
+            unlock(false, locked);
+        }
+    }
+
+    /**
+     * Удаляет книги с переданными идентификаторами, отсутствующие пропускаются.
+     *
+     * @return количество удалённых книг
+     */
+    public int deleteBooks(int[] ids) {
+        if (ids.length == 0) {
+            return 0;
+        }
+        boolean[] locked = lockWithRelated(true, ids, NO_IDS, BOOK_OWNER);
+        try {
+            int[] existing = IntStream.of(ids)
+                    .filter(id -> segment(id).books.containsKey(id))
+                    .distinct()
+                    .toArray();
+            if (existing.length > 0) {
+                beforeBooksDeleted(existing);
+            }
+            for (int id : existing) {
+                StoredBook removed = segment(id).books.remove(id);
+                segment(removed.userId()).removeBookId(removed.userId(), id);
+            }
+            return existing.length;
+        } finally {
+            unlock(true, locked);
+        }
+    }
+
+    /**
+     * @return количество удалённых книг
+     */
+    public int deleteBooksByUser(int userId) {
+        boolean[] locked = lockWithRelated(true, new int[]{userId}, NO_IDS, USER_BOOKS);
+        try {
+            Segment segment = segment(userId);
+            int[] bookIds = segment.bookIds(userId);
+            if (bookIds.length > 0) {
+                beforeBooksDeleted(bookIds);
+            }
+            for (int bookId : bookIds) {
+                segment(bookId).books.remove(bookId);
+            }
+            segment.bookIdsByUser.remove(userId);
+            return bookIds.length;
+        } finally {
+            unlock(true, locked);
+        }
+    }
+
+    /**
+     * Вызывается со всей пачкой пользователей после проверок, но до изменения, под блокировками их сегментов,
+     * поэтому порядок вызовов для одного пользователя совпадает с порядком изменений. Если обработчик бросает
+     * исключение, хранилище не изменяется. То же верно для остальных обработчиков.
+     */
+    protected void beforeUsersWritten(List<StoredUser> users) {
+    }
+
+    /**
+     * Вызывается перед удалением пользователя; его книги удаляются вместе с ним без отдельных вызовов.
+     */
+    protected void beforeUserDeleted(int id) {
+    }
+
+    protected void beforeBooksWritten(List<StoredBook> books) {
+    }
+
+    /**
+     * Вызывается только с существующими книгами, и только если такие есть.
+     */
+    protected void beforeBooksDeleted(int[] ids) {
+    }
+
+    /**
+     * Восстанавливает пользователя с уже назначенным идентификатором, не вызывая обработчики изменений.
+     */
+    protected void restoreUser(StoredUser user) {
+        Segment segment = segment(user.id());
+        segment.lock.writeLock().lock();
+        try {
+            segment.users.put(user.id(), user);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+        userSequence.accumulateAndGet(user.id(), Math::max);
+    }
+
+    /**
+     * Восстанавливает книгу с уже назначенным идентификатором, не вызывая обработчики изменений.
+     */
+    protected void restoreBook(StoredBook book) {
+        boolean[] locked = lockWithRelated(true, new int[]{book.id()}, new int[]{book.userId()}, BOOK_OWNER);
+        try {
+            StoredBook previous = segment(book.id()).books.put(book.id(), book);
+            if (previous != null && previous.userId() != book.userId()) {
+                segment(previous.userId()).removeBookId(previous.userId(), book.id());
+            }
+            segment(book.userId()).addBookId(book.userId(), book.id());
+        } finally {
+            unlock(true, locked);
+        }
+        bookSequence.accumulateAndGet(book.id(), Math::max);
+    }
+
+    protected void restoreSequences(int lastUserId, int lastBookId) {
+        userSequence.accumulateAndGet(lastUserId, Math::max);
+        bookSequence.accumulateAndGet(lastBookId, Math::max);
+    }
+
+    protected int lastUserId() {
+        return userSequence.get();
+    }
+
+    protected int lastBookId() {
+        return bookSequence.get();
+    }
+
+    /**
+     * Выполняет {@code action} под блокировками чтения всех сегментов: пока он выполняется, хранилище
+     * не изменяется. Только внутри него можно вызывать {@link #forEachUser} и {@link #forEachBook}.
+     */
+    protected void readAll(Runnable action) {
+        boolean[] locked = new boolean[segments.length];
+        Arrays.fill(locked, true);
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+        }
+        try {
+            action.run();
+        } finally {
+            unlock(false, locked);
+        }
+    }
+
+    protected void forEachUser(Consumer<StoredUser> consumer) {
+        for (Segment segment : segments) {
+            segment.users.forEachValue(consumer);
+        }
+    }
+
+    protected void forEachBook(Consumer<StoredBook> consumer) {
+        for (Segment segment : segments) {
+            segment.books.forEachValue(consumer);
+        }
+    }
+
+    private StoredUser findUser(int id) {
+        Segment segment = segment(id);
+        segment.lock.readLock().lock();
+        try {
+            return segment.users.get(id);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    private Segment segment(int id) {
+        return segments[segmentIndex(id)];
+    }
+
+    private int segmentIndex(int id) {
+        return id & (segments.length - 1);
+    }
+
+    /**
+     * Блокирует сегменты переданных идентификаторов по возрастанию номера сегмента.
+     *
+     * @return отметки заблокированных сегментов для {@link #unlock(boolean, boolean[])}
+     */
+    private boolean[] lock(boolean write, int[] ids) {
+        boolean[] locked = new boolean[segments.length];
+        for (int id : ids) {
+            locked[segmentIndex(id)] = true;
+        }
+        for (int i = 0; i < locked.length; i++) {
+            if (locked[i]) {
+                lockOf(segments[i], write).lock();
+            }
+        }
+        return locked;
+    }
+
+    private void unlock(boolean write, boolean[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            if (locked[i]) {
+                lockOf(segments[i], write).unlock();
+            }
+        }
+    }
+
+    /**
+     * Блокирует сегменты {@code baseIds}, {@code extraIds} и связанных с {@code baseIds} идентификаторов.
+     * Связи читаются до блокировки, поэтому после неё проверяются заново под уже взятыми блокировками;
+     * если связь успела уйти в незаблокированный сегмент, попытка повторяется.
+     */
+    private boolean[] lockWithRelated(boolean write, int[] baseIds, int[] extraIds, Related related) {
+        while (true) {
+            int[] relatedIds = collectRelated(baseIds, related, true);
+            boolean[] locked = lock(write, IntStream.concat(IntStream.of(baseIds),
+                            IntStream.concat(IntStream.of(extraIds), IntStream.of(relatedIds)))
+                    .toArray());
+            boolean covered = IntStream.of(collectRelated(baseIds, related, false))
+                    .allMatch(id -> locked[segmentIndex(id)]);
+            if (covered) {
+                return locked;
+            }
+            unlock(write, locked);
+        }
+    }
+
+    private int[] collectRelated(int[] baseIds, Related related, boolean acquireLocks) {
+        IntStream.Builder relatedIds = IntStream.builder();
+        for (int id : baseIds) {
+            Segment segment = segment(id);
+            if (acquireLocks) {
+                segment.lock.readLock().lock();
+            }
+            try {
+                for (int relatedId : related.ids(segment, id)) {
+                    relatedIds.add(relatedId);
+                }
+            } finally {
+                if (acquireLocks) {
+                    segment.lock.readLock().unlock();
+                }
+            }
+        }
+        return relatedIds.build().toArray();
+    }
+
+    private static Lock lockOf(Segment segment, boolean write) {
+        return write ? segment.lock.writeLock() : segment.lock.readLock();
+    }
+
+    private static NotFoundException userNotFound(int id) {
+        return new NotFoundException("Person with ID: " + id + " not found");
+    }
+
+    private static NotFoundException bookNotFound(int id) {
+        return new NotFoundException("Book with ID: " + id + " not found");
+    }
+
+    @FunctionalInterface
+    private interface Related {
+        int[] ids(Segment segment, int id);
+    }
+
+    private static final class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final IntObjectHashMap<StoredUser> users = new IntObjectHashMap<>(SEGMENT_CAPACITY);
+        private final IntObjectHashMap<StoredBook> books = new IntObjectHashMap<>(SEGMENT_CAPACITY);
+        private final IntObjectHashMap<int[]> bookIdsByUser = new IntObjectHashMap<>(SEGMENT_CAPACITY);
+
+        /**
+         * Массивы связей не изменяются после публикации, изменение заменяет массив целиком.
+         */
+        private int[] bookIds(int userId) {
+            int[] bookIds = bookIdsByUser.get(userId);
+            return bookIds == null ? NO_IDS : bookIds;
+        }
+
+        private void addBookId(int userId, int bookId) {
+            int[] bookIds = bookIds(userId);
+            int position = Arrays.binarySearch(bookIds, bookId);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            int[] updated = new int[bookIds.length + 1];
+            System.arraycopy(bookIds, 0, updated, 0, position);
+            updated[position] = bookId;
+            System.arraycopy(bookIds, position, updated, position + 1, bookIds.length - position);
+            bookIdsByUser.put(userId, updated);
+        }
+
+        private void removeBookId(int userId, int bookId) {
+            int[] bookIds = bookIds(userId);
+            int position = Arrays.binarySearch(bookIds, bookId);
+            if (position < 0) {
+                return;
+            }
+            if (bookIds.length == 1) {
+                bookIdsByUser.remove(userId);
+                return;
+            }
+            int[] updated = new int[bookIds.length - 1];
+            System.arraycopy(bookIds, 0, updated, 0, position);
+            System.arraycopy(bookIds, position + 1, updated, position, bookIds.length - position - 1);
+            bookIdsByUser.put(userId, updated);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Книга в виде, в котором она хранится в {@link Storage}.
+ */
+public record StoredBook(int id, int userId, String title, String author, long pageCount) {
+
+    public StoredBook withId(int id) {
+        return new StoredBook(id, userId, title, author, pageCount);
+    }
+}
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Пользователь в виде, в котором он хранится в {@link Storage}.
+ */
+public record StoredUser(int id, String fullName, String title, int age) {
+
+    public StoredUser withId(int id) {
+        return new StoredUser(id, fullName, title, age);
+    }
+}
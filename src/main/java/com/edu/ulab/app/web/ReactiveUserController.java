@@ -0,0 +1,69 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.facade.ReactiveUserDataFacade;
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Pattern;
+
+import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+
+/**
+ * Неблокирующий вариант {@link UserController} на WebFlux с теми же адресами и DTO.
+ */
+@Slf4j
+@RestController
+@Profile(BackendProfiles.REACTIVE)
+@RequestMapping(value = WebConstant.VERSION_URL + "/user",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveUserController {
+    private final ReactiveUserDataFacade userDataFacade;
+
+    public ReactiveUserController(ReactiveUserDataFacade userDataFacade) {
+        this.userDataFacade = userDataFacade;
+    }
+
+    @PostMapping(value = "/create")
+    @Operation(summary = "Create user book row.")
+    @Timed(value = "user.api", extraTags = {"operation", "createUserWithBooks"}, histogram = true)
+    public Mono<UserBookResponse> createUserWithBooks(@RequestBody UserBookRequest request,
+                                                      @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        log.info("RequestId : {}", requestId);
+        return userDataFacade.createUserWithBooks(request)
+                .doOnNext(response -> log.info("Response with created user and his books: {}", response));
+    }
+
+    @PutMapping(value = "/update/{id}")
+    @Operation(summary = "update user with book row if exist, else create user book row")
+    @Timed(value = "user.api", extraTags = {"operation", "updateUserWithBooks"}, histogram = true)
+    public Mono<UserBookResponse> updateUserWithBooks(@RequestBody UserBookRequest request, @PathVariable Integer id) {
+        return userDataFacade.updateUserWithBooks(request, id)
+                .doOnNext(response -> log.info("Response with updated user and his books: {}", response));
+    }
+
+    @GetMapping(value = "/get/{userId}")
+    @Operation(summary = "Return user with book after update by user ID")
+    @Timed(value = "user.api", extraTags = {"operation", "getUserWithBooks"}, histogram = true)
+    public Mono<UserBookResponse> getUserWithBooks(@PathVariable Integer userId) {
+        return userDataFacade.getUserWithBooks(userId)
+                .doOnNext(response -> log.info("Response with user and his books: {}", response));
+    }
+
+    @DeleteMapping(value = "/delete/{userId}")
+    @Operation(summary = "Delete user book row if exists, else do nothing")
+    @Timed(value = "user.api", extraTags = {"operation", "deleteUserWithBooks"}, histogram = true)
+    public Mono<Void> deleteUserWithBooks(@PathVariable Integer userId) {
+        log.info("Delete user and his books:  userId {}", userId);
+        return userDataFacade.deleteUserWithBooks(userId);
+    }
+}
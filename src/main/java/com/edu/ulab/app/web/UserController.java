@@ -1,52 +1,116 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.config.BackendProfiles;
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.dto.UserFilterDto;
+import com.edu.ulab.app.facade.IdempotentRequests;
+import com.edu.ulab.app.facade.UserBookExportFacade;
+import com.edu.ulab.app.facade.UserBookImportFacade;
 import com.edu.ulab.app.facade.UserDataFacade;
 import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.request.BookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBatchResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserImportResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
 
 @Slf4j
 @RestController
+@Profile("!" + BackendProfiles.REACTIVE)
 @RequestMapping(value = WebConstant.VERSION_URL + "/user",
         produces = MediaType.APPLICATION_JSON_VALUE)
 public class UserController {
     private final UserDataFacade userDataFacade;
+    private final UserBookImportFacade userBookImportFacade;
+    private final UserBookExportFacade userBookExportFacade;
+    private final IdempotentRequests idempotentRequests;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade,
+                          UserBookImportFacade userBookImportFacade,
+                          UserBookExportFacade userBookExportFacade,
+                          IdempotentRequests idempotentRequests) {
         this.userDataFacade = userDataFacade;
+        this.userBookImportFacade = userBookImportFacade;
+        this.userBookExportFacade = userBookExportFacade;
+        this.idempotentRequests = idempotentRequests;
     }
 
     @PostMapping(value = "/create")
-    @Operation(summary = "Create user book row.",
+    @Operation(summary = "Create user book row. A repeated request with the same rqid returns the first response, "
+            + "the same rqid with a different body is rejected with 422.",
             responses = {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
+    @Timed(value = "user.api", extraTags = {"operation", "createUserWithBooks"}, histogram = true)
     public UserBookResponse createUserWithBooks(@RequestBody UserBookRequest request,
                                                 @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
-        UserBookResponse response = userDataFacade.createUserWithBooks(request);
+        String fingerprint = idempotentRequests.fingerprint(request);
+        UserBookResponse response = idempotentRequests.execute(requestId, fingerprint, UserBookResponse.class,
+                () -> userDataFacade.createUserWithBooks(request, requestId, fingerprint));
         log.info("Response with created user and his books: {}", response);
         return response;
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import user book rows from newline-delimited JSON, one UserBookRequest per line.",
+            responses = {
+                    @ApiResponse(description = "Per-chunk import summary",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserImportResponse.class)))})
+    public UserImportResponse importUsersWithBooks(InputStream requestBody,
+                                                   @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) throws IOException {
+        UserImportResponse response = userBookImportFacade.importUsersWithBooks(requestBody);
+        log.info("Response with imported users: {} users, {} failed records",
+                response.getImportedUsers(), response.getFailedRecords());
+        return response;
+    }
+
+    @PostMapping(value = "/add-book/{userId}")
+    @Operation(summary = "Add a book to the user. With book-write-behind enabled the book is written in a batch "
+            + "and the response comes after the batch is committed",
+            responses = {
+                    @ApiResponse(description = "User with the added book",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookResponse.class)))})
+    @Timed(value = "user.api", extraTags = {"operation", "addBookToUser"}, histogram = true)
+    public CompletableFuture<UserBookResponse> addBookToUser(@RequestBody BookRequest request, @PathVariable Integer userId) {
+        return userDataFacade.addBookToUser(userId, request)
+                .thenApply(response -> {
+                    log.info("Response with added book: {}", response);
+                    return response;
+                });
+    }
+
     @PutMapping(value = "/update/{id}")
     @Operation(summary = "update user with book row if exist, else create user book row",
             responses = {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
+    @Timed(value = "user.api", extraTags = {"operation", "updateUserWithBooks"}, histogram = true)
     public UserBookResponse updateUserWithBooks(@RequestBody UserBookRequest request, @PathVariable Integer id) {
         UserBookResponse response = userDataFacade.updateUserWithBooks(request, id);
         log.info("Response with updated user and his books: {}", response);
@@ -54,23 +118,74 @@ public class UserController {
     }
 
     @GetMapping(value = "/get/{userId}")
-    @Operation(summary = "Return user with book after update by user ID",
+    @Operation(summary = "Return user with book after update by user ID. "
+            + "Responds 304 without a body when If-None-Match carries the current ETag",
             responses = {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse getUserWithBooks(@PathVariable Integer userId) {
+    @Timed(value = "user.api", extraTags = {"operation", "getUserWithBooks"}, histogram = true)
+    public UserBookResponse getUserWithBooks(@PathVariable Integer userId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(userDataFacade.getUserWithBooksVersion(userId))) {
+            log.info("User {} with books is not modified", userId);
+            return null;
+        }
         UserBookResponse response = userDataFacade.getUserWithBooks(userId);
         log.info("Response with user and his books: {}", response);
         return response;
     }
 
+    @GetMapping(value = "/get")
+    @Operation(summary = "Return users with books by a list of user IDs. Missing IDs are listed in notFoundIds",
+            responses = {
+                    @ApiResponse(description = "Users with books",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBatchResponse.class)))})
+    @Timed(value = "user.api", extraTags = {"operation", "getUsersWithBooks"}, histogram = true)
+    public UserBatchResponse getUsersWithBooks(@RequestParam List<Integer> ids) {
+        UserBatchResponse response = userDataFacade.getUsersWithBooks(ids);
+        log.info("Response with {} users and their books, not found IDs {}",
+                response.getUsers().size(), response.getNotFoundIds());
+        return response;
+    }
+
+    @GetMapping(value = "/list")
+    @Operation(summary = "List users ordered by ID. Pass nextAfterId of the previous page as afterId to get the next one",
+            responses = {
+                    @ApiResponse(description = "Users page",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserPageResponse.class)))})
+    public UserPageResponse listUsers(@RequestParam(required = false) Integer afterId,
+                                      @RequestParam(defaultValue = "50") int limit,
+                                      @RequestParam(required = false) String title,
+                                      @RequestParam(required = false) Integer minAge,
+                                      @RequestParam(required = false) Integer maxAge) {
+        UserPageResponse response = userDataFacade.listUsers(new UserFilterDto(title, minAge, maxAge), afterId, limit);
+        log.info("Response with {} users, next after ID {}", response.getUsers().size(), response.getNextAfterId());
+        return response;
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all users with their books as newline-delimited JSON, ordered by user ID",
+            responses = {
+                    @ApiResponse(description = "One user with books per line",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserBooksDto.class)))})
+    public ResponseEntity<StreamingResponseBody> exportUsersWithBooks() {
+        log.info("Export users with their books");
+        StreamingResponseBody body = userBookExportFacade::exportUsersWithBooks;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @DeleteMapping(value = "/delete/{userId}")
     @Operation(summary = "Delete user book row if exists, else do nothing",
             responses = {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
+    @Timed(value = "user.api", extraTags = {"operation", "deleteUserWithBooks"}, histogram = true)
     public void deleteUserWithBooks(@PathVariable Integer userId) {
         log.info("Delete user and his books:  userId {}", userId);
         userDataFacade.deleteUserWithBooks(userId);
@@ -1,7 +1,9 @@
 package com.edu.ulab.app.web.filter;
 
+import com.edu.ulab.app.metrics.SqlStatementStats;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -14,6 +16,12 @@ import java.io.IOException;
 @Slf4j
 @Component
 public class HttpRequestFilter extends OncePerRequestFilter {
+    private final boolean sqlStatsEnabled;
+
+    public HttpRequestFilter(@Value("${sql-stats.enabled:false}") boolean sqlStatsEnabled) {
+        this.sqlStatsEnabled = sqlStatsEnabled;
+    }
+
     @Override
     protected void doFilterInternal(final HttpServletRequest request,
                                     final HttpServletResponse response,
@@ -22,9 +30,28 @@ public class HttpRequestFilter extends OncePerRequestFilter {
         MDC.put("requestId", requestId);
         log.info("RequestId : {}", requestId);
         try {
+            if (sqlStatsEnabled) {
+                SqlStatementStats.begin();
+            }
             filterChain.doFilter(request, response);
         } finally {
+            // счётчики сбрасываются всегда, иначе следующий запрос в этом потоке продолжит чужие
+            SqlStatementStats stats = SqlStatementStats.end();
             MDC.remove("requestId");
+            if (sqlStatsEnabled) {
+                logSqlStats(requestId, request, stats);
+            }
+        }
+    }
+
+    private void logSqlStats(String requestId, HttpServletRequest request, SqlStatementStats stats) {
+        if (stats == null || stats.getTotalCount() == 0) {
+            return;
         }
+        log.info("sql-stats requestId={} method={} uri={} select={} insert={} update={} delete={} other={} total={} jdbcTimeMs={}",
+                requestId, request.getMethod(), request.getRequestURI(),
+                stats.getSelectCount(), stats.getInsertCount(), stats.getUpdateCount(),
+                stats.getDeleteCount(), stats.getOtherCount(), stats.getTotalCount(),
+                stats.getElapsedMillis());
     }
 }
@@ -0,0 +1,15 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ImportChunkResponse {
+    private int chunk;
+    private int records;
+    private List<Integer> userIdList;
+    private String errorMessage;
+}
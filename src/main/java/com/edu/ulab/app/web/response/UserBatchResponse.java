@@ -0,0 +1,19 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserBatchResponse {
+    /**
+     * Найденные пользователи с книгами в порядке запрошенных идентификаторов.
+     */
+    private List<UserBookResponse> users;
+    /**
+     * Запрошенные идентификаторы, пользователей с которыми нет.
+     */
+    private List<Integer> notFoundIds;
+}
@@ -0,0 +1,14 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserImportResponse {
+    private int importedUsers;
+    private int failedRecords;
+    private List<ImportChunkResponse> chunks;
+}
@@ -0,0 +1,17 @@
+package com.edu.ulab.app.web.response;
+
+import com.edu.ulab.app.dto.UserDto;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserPageResponse {
+    private List<UserDto> users;
+    /**
+     * Значение {@code afterId} для следующей страницы, {@code null} если страница последняя.
+     */
+    private Integer nextAfterId;
+}
@@ -0,0 +1 @@
+CREATE INDEX idx_ulab_edu_person_age_id on ulab_edu.person (age, id);
@@ -0,0 +1,5 @@
+alter table ulab_edu.person add column version integer not null default 0;
+alter table ulab_edu.book add column version integer not null default 0;
+
+comment on column ulab_edu.person.version is 'Версия строки для оптимистической блокировки';
+comment on column ulab_edu.book.version is 'Версия строки для оптимистической блокировки';
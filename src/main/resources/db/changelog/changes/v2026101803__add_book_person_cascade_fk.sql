@@ -0,0 +1,14 @@
+-- books of already deleted persons block the foreign key: keep a copy before removing them
+create table ulab_edu.book_orphan_backup as
+select b.*, now() as removed_at
+from ulab_edu.book b
+where not exists (select 1 from ulab_edu.person p where p.id = b.person_id);
+
+comment on table ulab_edu.book_orphan_backup is 'Books without a person removed before adding fk_ulab_edu_book_person_id';
+
+delete from ulab_edu.book b
+where b.id in (select o.id from ulab_edu.book_orphan_backup o);
+
+alter table ulab_edu.book
+    add constraint fk_ulab_edu_book_person_id foreign key (person_id)
+        references ulab_edu.person (id) on delete cascade;
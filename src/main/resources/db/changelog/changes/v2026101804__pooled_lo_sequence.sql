@@ -0,0 +1,7 @@
+-- pooled-lo: every nextval reserves the block [value, value + 100) for its caller
+alter sequence sequence increment by 100;
+
+select setval('sequence', (select coalesce(max(id), 0) + 1
+                           from (select id from ulab_edu.person
+                                 union all
+                                 select id from ulab_edu.book) ids), false);
@@ -0,0 +1,14 @@
+create table ulab_edu.idempotency_key
+(
+    request_id text      not null,
+    response   text      not null,
+    created_at timestamp not null,
+    constraint pk_ulab_edu_idempotency_key_request_id primary key (request_id)
+);
+
+CREATE INDEX idx_ulab_edu_idempotency_key_created_at on ulab_edu.idempotency_key (created_at);
+
+comment on table ulab_edu.idempotency_key is 'Ответы на запросы создания по rqid для повторов клиента';
+comment on column ulab_edu.idempotency_key.request_id is 'Идентификатор запроса из заголовка rqid';
+comment on column ulab_edu.idempotency_key.response is 'Ответ на первый запрос в JSON';
+comment on column ulab_edu.idempotency_key.created_at is 'Время сохранения ответа';
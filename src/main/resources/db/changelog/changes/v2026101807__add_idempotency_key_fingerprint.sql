@@ -0,0 +1,3 @@
+alter table ulab_edu.idempotency_key add column fingerprint text;
+
+comment on column ulab_edu.idempotency_key.fingerprint is 'SHA-256 тела первого запроса; пусто у записей, сохранённых до появления колонки';
@@ -1,18 +1,23 @@
+DROP TABLE IF EXISTS BOOK;
 DROP TABLE IF EXISTS PERSON;
 CREATE TABLE IF NOT EXISTS PERSON
 (
-    ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     FULL_NAME VARCHAR (255),
     TITLE VARCHAR (255),
-    AGE INTEGER
+    AGE INTEGER,
+    VERSION INTEGER NOT NULL DEFAULT 0
 );
+CREATE INDEX IF NOT EXISTS IDX_PERSON_AGE_ID ON PERSON (AGE, ID);
+CREATE INDEX IF NOT EXISTS IDX_PERSON_TITLE ON PERSON (TITLE);
 
-DROP TABLE IF EXISTS BOOK;
 CREATE TABLE IF NOT EXISTS BOOK
 (
-    ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     TITLE VARCHAR (255),
     AUTHOR VARCHAR (255),
     PAGE_COUNT INTEGER,
-    USER_ID BIGINT
+    USER_ID BIGINT REFERENCES PERSON (ID) ON DELETE CASCADE,
+    VERSION INTEGER NOT NULL DEFAULT 0
 );
+CREATE INDEX IF NOT EXISTS IDX_BOOK_USER_ID_ID ON BOOK (USER_ID, ID);
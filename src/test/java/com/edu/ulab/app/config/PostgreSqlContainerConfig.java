@@ -50,11 +50,17 @@ public class PostgreSqlContainerConfig {
         return proxyListenerDataSource(dataSource);
     }
 
+    @Bean
+    public QueryCaptureListener queryCaptureListener() {
+        return new QueryCaptureListener();
+    }
+
     private DataSource proxyListenerDataSource(final DataSource dataSource) {
         ChainListener listener = new ChainListener();
         SLF4JQueryLoggingListener loggingListener = new SLF4JQueryLoggingListener();
         listener.addListener(loggingListener);
         listener.addListener(new DataSourceQueryCountListener());
+        listener.addListener(queryCaptureListener());
 
         return ProxyDataSourceBuilder
                 .create(dataSource)
@@ -0,0 +1,33 @@
+package com.edu.ulab.app.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Запоминает выполненные запросы вместе с привязанными параметрами, чтобы тест мог их повторить.
+ */
+public class QueryCaptureListener implements QueryExecutionListener {
+    private final List<QueryInfo> queries = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        queries.addAll(queryInfoList);
+    }
+
+    public List<QueryInfo> getQueries() {
+        return new ArrayList<>(queries);
+    }
+
+    public void reset() {
+        queries.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование функционала {@link BookDiff}.
+ */
+@UnitTest
+@DisplayName("Testing book diff functionality.")
+public class BookDiffTest {
+
+    @Test
+    @DisplayName("Неизменённые книги сохраняют идентификаторы, изменённые обновляются на месте.")
+    void diff_KeepsUnchangedAndUpdatesChanged() {
+        //given
+        List<BookDto> existing = List.of(
+                new BookDto(1, 7, "same", "author", 100),
+                new BookDto(2, 7, "old", "author", 200));
+        List<BookDto> requested = List.of(
+                new BookDto(null, 7, "new", "author", 300),
+                new BookDto(null, 7, "same", "author", 100));
+
+        //when
+        BookDiff diff = BookDiff.of(existing, requested);
+
+        //then
+        assertThat(diff.getToInsert()).isEmpty();
+        assertThat(diff.getToDelete()).isEmpty();
+        assertThat(diff.getToUpdate()).extracting(BookDto::getId).containsExactly(2);
+        assertThat(diff.getBookIds()).containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("Лишние книги удаляются, недостающие вставляются.")
+    void diff_InsertsAndDeletes() {
+        //given
+        List<BookDto> existing = List.of(new BookDto(1, 7, "same", "author", 100));
+        List<BookDto> requested = List.of(
+                new BookDto(null, 7, "same", "author", 100),
+                new BookDto(null, 7, "first", "author", 10),
+                new BookDto(null, 7, "second", "author", 20));
+
+        //when
+        BookDiff diff = BookDiff.of(existing, requested);
+        diff.applyCreated(List.of(
+                new BookDto(5, 7, "first", "author", 10),
+                new BookDto(6, 7, "second", "author", 20)));
+
+        //then
+        assertThat(diff.getToUpdate()).isEmpty();
+        assertThat(diff.getToDelete()).isEmpty();
+        assertThat(diff.getToInsert()).hasSize(2);
+        assertThat(diff.getBookIds()).containsExactly(1, 5, 6);
+
+        BookDiff shrink = BookDiff.of(List.of(
+                new BookDto(1, 7, "a", "author", 1),
+                new BookDto(2, 7, "b", "author", 2)), List.of());
+        assertThat(shrink.getToDelete()).containsExactlyInAnyOrder(1, 2);
+    }
+}
@@ -0,0 +1,180 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link BookWriteBehind}.
+ */
+@UnitTest
+@DisplayName("Testing book write-behind functionality.")
+public class BookWriteBehindTest {
+    @Mock
+    BookService bookService;
+
+    @Mock
+    ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    BookWriteBehind bookWriteBehind;
+
+    @AfterEach
+    void tearDown() {
+        bookWriteBehind.stop();
+    }
+
+    @Test
+    @DisplayName("Полная пачка пишется одним вызовом, остаток очереди дописывается при остановке.")
+    void createBook_WritesFullBatchAndFlushesOnStop() throws Exception {
+        //given
+        bookWriteBehind = start(3, 10);
+        AtomicInteger ids = new AtomicInteger();
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> {
+            List<BookDto> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(ids.incrementAndGet()));
+            return books;
+        });
+
+        //when
+        List<CompletableFuture<Integer>> batch = List.of(
+                bookWriteBehind.createBook(book(1)),
+                bookWriteBehind.createBook(book(1)),
+                bookWriteBehind.createBook(book(2)));
+        CompletableFuture.allOf(batch.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        CompletableFuture<Integer> rest = bookWriteBehind.createBook(book(3));
+        bookWriteBehind.stop();
+
+        //then
+        assertThat(batch).extracting(CompletableFuture::join).containsExactly(1, 2, 3);
+        assertThat(rest).isCompletedWithValue(4);
+        verify(bookService, times(2)).createBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("Если пачка не записалась, книги пишутся по одной и ошибку получает только неверная.")
+    void createBook_FailedBatchIsWrittenOneByOne() throws Exception {
+        //given
+        bookWriteBehind = start(2, 10);
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> {
+            List<BookDto> books = invocation.getArgument(0);
+            if (books.stream().anyMatch(book -> book.getUserId() == 404)) {
+                throw new NotFoundException("Person with ID: 404 not found");
+            }
+            books.forEach(book -> book.setId(book.getUserId() * 10));
+            return books;
+        });
+
+        //when
+        CompletableFuture<Integer> valid = bookWriteBehind.createBook(book(1));
+        CompletableFuture<Integer> invalid = bookWriteBehind.createBook(book(404));
+
+        //then
+        assertThat(valid.get(5, TimeUnit.SECONDS)).isEqualTo(10);
+        assertThatThrownBy(() -> invalid.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Книга, владельца которой уже нет, получает NotFoundException вместо нарушения внешнего ключа.")
+    void createBook_ForeignKeyViolationIsNotFound() {
+        //given
+        bookWriteBehind = start(1, 10);
+        when(bookService.createBooks(anyList())).thenThrow(new DataIntegrityViolationException("insert failed",
+                new SQLException("violates foreign key constraint", "23503")));
+
+        //when
+        CompletableFuture<Integer> orphan = bookWriteBehind.createBook(book(404));
+
+        //then
+        assertThatThrownBy(() -> orphan.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Error при записи пачки завершает её книги ошибкой, а запись следующих продолжается.")
+    void createBook_ErrorFailsBatchAndWriterSurvives() throws Exception {
+        //given
+        bookWriteBehind = start(1, 10);
+        when(bookService.createBooks(anyList()))
+                .thenThrow(new NoClassDefFoundError("test"))
+                .thenAnswer(invocation -> {
+                    List<BookDto> books = invocation.getArgument(0);
+                    books.forEach(book -> book.setId(2));
+                    return books;
+                });
+
+        //when
+        CompletableFuture<Integer> failed = bookWriteBehind.createBook(book(1));
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NoClassDefFoundError.class);
+        CompletableFuture<Integer> next = bookWriteBehind.createBook(book(1));
+
+        //then
+        assertThat(next.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Когда очередь заполнена, вызов отклоняется после ожидания.")
+    void createBook_RejectsWhenFull() throws Exception {
+        //given
+        bookWriteBehind = start(1, 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<BookDto> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(1));
+            return books;
+        });
+
+        //when
+        CompletableFuture<Integer> first = bookWriteBehind.createBook(book(1));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //then
+        assertThatThrownBy(() -> bookWriteBehind.createBook(book(2)))
+                .isInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    private BookWriteBehind start(int batchSize, int capacity) {
+        BookWriteBehind writeBehind = new BookWriteBehind(bookService, transactionManager, true, batchSize,
+                Duration.ofMinutes(1), capacity, Duration.ofMillis(50));
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private static BookDto book(int userId) {
+        return new BookDto(null, userId, "title", "author", 100);
+    }
+}
@@ -0,0 +1,159 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.IdempotencyConflictException;
+import com.edu.ulab.app.service.IdempotencyStore;
+import com.edu.ulab.app.service.IdempotencyStore.StoredResponse;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link IdempotentRequests}.
+ */
+@UnitTest
+@DisplayName("Testing idempotent requests functionality.")
+public class IdempotentRequestsTest {
+    @Mock
+    IdempotencyStore idempotencyStore;
+
+    @Test
+    @DisplayName("Повтор во время выполнения ждёт первый ответ, действие выполняется один раз.")
+    void execute_ConcurrentRepeatWaitsForFirstResponse() throws Exception {
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(idempotencyStore, new ObjectMapper(), 100, Duration.ofHours(1));
+        UserBookResponse created = UserBookResponse.builder().userId(1).booksIdList(List.of(2, 3)).build();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        when(idempotencyStore.find(anyString(), eq(UserBookResponse.class))).thenReturn(Optional.empty());
+
+        //when
+        CompletableFuture<UserBookResponse> first = CompletableFuture.supplyAsync(() ->
+                idempotentRequests.execute("rq-1", "fp-1", UserBookResponse.class, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return created;
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<UserBookResponse> repeat = CompletableFuture.supplyAsync(() ->
+                idempotentRequests.execute("rq-1", "fp-1", UserBookResponse.class, () -> {
+                    executions.incrementAndGet();
+                    return UserBookResponse.builder().userId(4).build();
+                }));
+        release.countDown();
+
+        //then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(created);
+        assertThat(repeat.get(5, TimeUnit.SECONDS)).isSameAs(created);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Сохранённый ответ возвращается без выполнения, в том числе после конфликта записи.")
+    void execute_ReturnsStoredResponse() {
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(idempotencyStore, new ObjectMapper(), 100, Duration.ofHours(1));
+        UserBookResponse stored = UserBookResponse.builder().userId(1).booksIdList(List.of(2)).build();
+        UserBookResponse concurrent = UserBookResponse.builder().userId(5).booksIdList(List.of()).build();
+        AtomicInteger executions = new AtomicInteger();
+        when(idempotencyStore.find("rq-1", UserBookResponse.class)).thenReturn(Optional.of(new StoredResponse<>("fp-1", stored)));
+        when(idempotencyStore.find("rq-2", UserBookResponse.class))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new StoredResponse<>("fp-2", concurrent)));
+
+        //when
+        UserBookResponse replayed = idempotentRequests.execute("rq-1", "fp-1", UserBookResponse.class, () -> {
+            executions.incrementAndGet();
+            return null;
+        });
+        UserBookResponse afterConflict = idempotentRequests.execute("rq-2", "fp-2", UserBookResponse.class, () -> {
+            executions.incrementAndGet();
+            throw new DuplicateKeyException("Request rq-2 was already processed");
+        });
+
+        //then
+        assertThat(replayed).isSameAs(stored);
+        assertThat(afterConflict).isSameAs(concurrent);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Тот же rqid с другим телом отклоняется, и в процессе выполнения, и после сохранения.")
+    void execute_RejectsDifferentBody() throws Exception {
+        //given
+        IdempotentRequests idempotentRequests = new IdempotentRequests(idempotencyStore, new ObjectMapper(),
+                100, Duration.ofHours(1));
+        UserBookRequest request = request(30);
+        UserBookRequest changed = request(31);
+        UserBookResponse stored = UserBookResponse.builder().userId(1).booksIdList(List.of()).build();
+        when(idempotencyStore.find("rq-1", UserBookResponse.class))
+                .thenReturn(Optional.of(new StoredResponse<>(idempotentRequests.fingerprint(request(30)), stored)));
+        when(idempotencyStore.find("rq-2", UserBookResponse.class)).thenReturn(Optional.empty());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotentRequests.fingerprint(request);
+        CompletableFuture<UserBookResponse> first = CompletableFuture.supplyAsync(() ->
+                idempotentRequests.execute("rq-2", fingerprint, UserBookResponse.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return stored;
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when
+        UserBookResponse replayed = idempotentRequests.execute("rq-1", fingerprint, UserBookResponse.class,
+                () -> null);
+
+        //then
+        assertThat(replayed).isSameAs(stored);
+        assertThat(idempotentRequests.fingerprint(changed)).isNotEqualTo(idempotentRequests.fingerprint(request));
+        assertThatThrownBy(() -> idempotentRequests.execute("rq-1", idempotentRequests.fingerprint(changed),
+                UserBookResponse.class, () -> null))
+                .isInstanceOf(IdempotencyConflictException.class);
+        assertThatThrownBy(() -> idempotentRequests.execute("rq-2", idempotentRequests.fingerprint(changed),
+                UserBookResponse.class, () -> null))
+                .isInstanceOf(IdempotencyConflictException.class);
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(stored);
+    }
+
+    private static UserBookRequest request(int age) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("name");
+        userRequest.setTitle("title");
+        userRequest.setAge(age);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of());
+        return request;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link OptimisticLockRetry}.
+ */
+@UnitTest
+@DisplayName("Testing optimistic lock retry functionality.")
+public class OptimisticLockRetryTest {
+
+    @Test
+    @DisplayName("Операция повторяется после конфликта версий, пока не выполнится.")
+    void execute_RetriesUntilSuccess() {
+        //given
+        OptimisticLockRetry retry = new OptimisticLockRetry(5, Duration.ZERO, Duration.ZERO);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        String result = retry.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "done";
+        });
+
+        //then
+        assertThat(result).isEqualTo("done");
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("После последней попытки конфликт пробрасывается, пауза не выходит за границу.")
+    void execute_GivesUpAfterMaxAttempts() {
+        //given
+        OptimisticLockRetry retry = new OptimisticLockRetry(3, Duration.ZERO, Duration.ZERO);
+        AtomicInteger attempts = new AtomicInteger();
+        OptimisticLockRetry bounded = new OptimisticLockRetry(10, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        //when
+        //then
+        assertThatThrownBy(() -> retry.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            assertThat(bounded.backoffMillis(attempt)).isBetween(0L, 50L);
+        }
+        assertThat(bounded.backoffMillis(1)).isBetween(0L, 10L);
+    }
+}
@@ -0,0 +1,127 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.ReactiveBookService;
+import com.edu.ulab.app.service.ReactiveUserService;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link ReactiveUserDataFacade}.
+ */
+@UnitTest
+@DisplayName("Testing reactive user facade functionality.")
+public class ReactiveUserDataFacadeTest {
+    @Mock
+    ReactiveUserService userService;
+
+    @Mock
+    ReactiveBookService bookService;
+
+    @Mock
+    TransactionalOperator transactionalOperator;
+
+    ReactiveUserDataFacade userDataFacade;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionalOperator.transactional(ArgumentMatchers.<Mono<UserBookResponse>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        userDataFacade = new ReactiveUserDataFacade(userService, bookService,
+                new UserMapperImpl(), new BookMapperImpl(), transactionalOperator);
+    }
+
+    @Test
+    @DisplayName("Создание пользователя вставляет его книги одной пачкой с идентификатором пользователя.")
+    void createUserWithBooks_CreatesBooksOfCreatedUser() {
+        //given
+        UserBookRequest request = request(book("first"), book("second"));
+
+        //when
+        when(userService.createUser(any())).thenAnswer(invocation -> {
+            UserDto userDto = invocation.getArgument(0);
+            userDto.setId(7);
+            return Mono.just(userDto);
+        });
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> {
+            List<BookDto> bookDtos = invocation.getArgument(0);
+            assertThat(bookDtos).extracting(BookDto::getUserId).containsOnly(7);
+            for (int i = 0; i < bookDtos.size(); i++) {
+                bookDtos.get(i).setId(10 + i);
+            }
+            return Flux.fromIterable(bookDtos);
+        });
+        UserBookResponse response = userDataFacade.createUserWithBooks(request).block();
+
+        //then
+        assertThat(response.getUserId()).isEqualTo(7);
+        assertThat(response.getBooksIdList()).containsExactly(10, 11);
+    }
+
+    @Test
+    @DisplayName("Обновление удаляет лишние книги до обновления и вставки остальных.")
+    void updateUserWithBooks_AppliesBookDiff() {
+        //given
+        UserBookRequest request = request(book("kept"), book("added"));
+        List<BookDto> existing = List.of(
+                new BookDto(1, 7, "kept", "author", 100),
+                new BookDto(2, 7, "removed", "author", 100),
+                new BookDto(3, 7, "removed", "author", 100));
+
+        //when
+        when(userService.updateUser(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(bookService.getBookByUserId(7)).thenReturn(Flux.fromIterable(existing));
+        when(bookService.deleteBooksByIds(anyList())).thenReturn(Mono.empty());
+        when(bookService.updateBooks(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        UserBookResponse response = userDataFacade.updateUserWithBooks(request, 7).block();
+
+        //then
+        assertThat(response.getBooksIdList()).containsExactly(1, 2);
+        InOrder order = inOrder(bookService);
+        order.verify(bookService).deleteBooksByIds(List.of(3));
+        order.verify(bookService).updateBooks(anyList());
+        order.verify(bookService).createBooks(List.of());
+    }
+
+    private static UserBookRequest request(BookRequest... bookRequests) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("test name");
+        userRequest.setTitle("test title");
+        userRequest.setAge(30);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of(bookRequests));
+        return request;
+    }
+
+    private static BookRequest book(String title) {
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle(title);
+        bookRequest.setAuthor("author");
+        bookRequest.setPageCount(100);
+        return bookRequest;
+    }
+}
@@ -0,0 +1,110 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.NotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link SingleFlight}.
+ */
+@UnitTest
+@DisplayName("Testing single flight functionality.")
+public class SingleFlightTest {
+
+    @Test
+    @DisplayName("Одновременные загрузки одного ключа выполняются один раз, следующая загрузка идёт заново.")
+    void load_ConcurrentCallsShareOneLoad() throws Exception {
+        //given
+        SingleFlight<Integer, List<Integer>> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Integer>> loader = () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return List.of(1, 2);
+        };
+
+        //when
+        CompletableFuture<List<Integer>> first = CompletableFuture.supplyAsync(() -> singleFlight.load(1, loader));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<Integer>> second = loadInWaitingThread(() -> singleFlight.load(1, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        }));
+        release.countDown();
+
+        //then
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(1, 2);
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly(1, 2);
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlight.load(1, List::of)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Исключение загрузки получают все ожидающие вызовы.")
+    void load_FailurePropagatesToWaiters() throws Exception {
+        //given
+        SingleFlight<Integer, List<Integer>> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        //when
+        CompletableFuture<List<Integer>> first = CompletableFuture.supplyAsync(() -> singleFlight.load(1, () -> {
+            started.countDown();
+            await(release);
+            throw new NotFoundException("Person with ID: 1 not found");
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<Integer>> second = loadInWaitingThread(() -> singleFlight.load(1, List::of));
+        release.countDown();
+
+        //then
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NotFoundException.class);
+    }
+
+    /**
+     * Запускает загрузку в отдельном потоке и возвращается, когда поток встал на ожидание первой загрузки.
+     */
+    private static CompletableFuture<List<Integer>> loadInWaitingThread(Supplier<List<Integer>> load) {
+        CompletableFuture<List<Integer>> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(load.get());
+            } catch (RuntimeException exc) {
+                result.completeExceptionally(exc);
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING && !result.isDone()) {
+            Thread.onSpinWait();
+        }
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.ImportChunkResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserImportResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserBookImportFacade}.
+ */
+@UnitTest
+@DisplayName("Testing user import functionality.")
+public class UserBookImportFacadeTest {
+    @Mock
+    UserDataFacade userDataFacade;
+
+    UserBookImportFacade importFacade;
+
+    AtomicInteger userIds = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        importFacade = new UserBookImportFacade(userDataFacade, new ObjectMapper(), 2);
+    }
+
+    @Test
+    @DisplayName("Записи пишутся пачками по chunk-size, последняя пачка - остаток.")
+    void importUsersWithBooks_WritesInChunks() throws IOException {
+        //given
+        when(userDataFacade.createUsersWithBooks(anyList())).thenAnswer(createUsers());
+
+        //when
+        UserImportResponse response = importFacade.importUsersWithBooks(ndjson(record("a"), record("b"),
+                record("c"), record("d"), record("e")));
+
+        //then
+        assertThat(response.getImportedUsers()).isEqualTo(5);
+        assertThat(response.getFailedRecords()).isZero();
+        assertThat(response.getChunks()).extracting(ImportChunkResponse::getRecords).containsExactly(2, 2, 1);
+        assertThat(response.getChunks().get(2).getUserIdList()).containsExactly(5);
+        verify(userDataFacade, times(3)).createUsersWithBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("На неправильной записи импорт останавливается, прочитанное пишется, запись считается неудачной.")
+    void importUsersWithBooks_StopsOnMalformedRecord() throws IOException {
+        //given
+        when(userDataFacade.createUsersWithBooks(anyList())).thenAnswer(createUsers());
+
+        //when
+        UserImportResponse response = importFacade.importUsersWithBooks(ndjson(record("a"), record("b"),
+                record("c"), "{\"userRequest\": {\"age\": \"old\"}}", record("d")));
+
+        //then
+        assertThat(response.getImportedUsers()).isEqualTo(3);
+        assertThat(response.getFailedRecords()).isEqualTo(1);
+        assertThat(response.getChunks()).extracting(ImportChunkResponse::getRecords).containsExactly(2, 1, 1);
+        assertThat(response.getChunks().get(2).getErrorMessage()).startsWith("Malformed record at line 4");
+    }
+
+    @Test
+    @DisplayName("Ошибка одной пачки не мешает следующей, её записи считаются неудачными.")
+    void importUsersWithBooks_FailedChunkNextToSuccessful() throws IOException {
+        //given
+        Answer<List<UserBookResponse>> createUsers = createUsers();
+        when(userDataFacade.createUsersWithBooks(anyList()))
+                .thenThrow(new NotValidException("Not valid book"))
+                .thenAnswer(createUsers);
+
+        //when
+        UserImportResponse response = importFacade.importUsersWithBooks(ndjson(record("a"), record("b"),
+                record("c"), record("d")));
+
+        //then
+        assertThat(response.getImportedUsers()).isEqualTo(2);
+        assertThat(response.getFailedRecords()).isEqualTo(2);
+        assertThat(response.getChunks().get(0).getErrorMessage()).isEqualTo("Not valid book");
+        assertThat(response.getChunks().get(0).getUserIdList()).isEmpty();
+        assertThat(response.getChunks().get(1).getErrorMessage()).isNull();
+        assertThat(response.getChunks().get(1).getUserIdList()).hasSize(2);
+    }
+
+    private Answer<List<UserBookResponse>> createUsers() {
+        return invocation -> {
+            List<UserBookRequest> requests = invocation.getArgument(0);
+            return requests.stream()
+                    .map(request -> UserBookResponse.builder()
+                            .userId(userIds.incrementAndGet())
+                            .booksIdList(List.of())
+                            .build())
+                    .toList();
+        };
+    }
+
+    private static String record(String fullName) {
+        return "{\"userRequest\": {\"fullName\": \"" + fullName + "\", \"title\": \"reader\", \"age\": 30},"
+                + " \"bookRequests\": []}";
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,167 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.metrics.FacadeMetrics;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.IdempotencyStore;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserDataFacade}.
+ */
+@UnitTest
+@DisplayName("Testing user data facade functionality.")
+public class UserDataFacadeTest {
+    @Mock
+    UserService userService;
+
+    @Mock
+    BookService bookService;
+
+    @Mock
+    IdempotencyStore idempotencyStore;
+
+    @Mock
+    BookWriteBehind bookWriteBehind;
+
+    @Mock
+    ObjectProvider<PlatformTransactionManager> transactionManagerProvider;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Каждая попытка обновления идёт в своей транзакции: после конфликта она откатывается и повторяется.")
+    void updateUserWithBooks_RetriesInNewTransaction() {
+        //given
+        TransactionStatus firstAttempt = new SimpleTransactionStatus();
+        TransactionStatus secondAttempt = new SimpleTransactionStatus();
+        when(transactionManagerProvider.getIfAvailable()).thenReturn(transactionManager);
+        when(transactionManager.getTransaction(any())).thenReturn(firstAttempt, secondAttempt);
+        when(userService.updateUser(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(UserDto.class, 1))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(bookService.getBookByUserId(1)).thenReturn(List.of());
+        UserVersions userVersions = new UserVersions(100, Duration.ofMinutes(1));
+        String version = userVersions.current(1);
+        UserDataFacade userDataFacade = new UserDataFacade(userService, bookService, new UserMapperImpl(),
+                new BookMapperImpl(), new FacadeMetrics(new SimpleMeterRegistry()),
+                new OptimisticLockRetry(3, Duration.ZERO, Duration.ZERO), idempotencyStore, userVersions,
+                bookWriteBehind, transactionManagerProvider);
+
+        //when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(request(), 1);
+
+        //then
+        assertThat(response.getUserId()).isEqualTo(1);
+        assertThat(userVersions.current(1)).isNotEqualTo(version);
+        verify(userService, times(2)).updateUser(any());
+        InOrder transactions = inOrder(transactionManager);
+        transactions.verify(transactionManager).rollback(firstAttempt);
+        transactions.verify(transactionManager).commit(secondAttempt);
+    }
+
+    @Test
+    @DisplayName("Таймер создания останавливается после коммита транзакции.")
+    void createUserWithBooks_TimerIncludesCommit() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionStatus status = new SimpleTransactionStatus();
+        AtomicBoolean timerRecordedBeforeCommit = new AtomicBoolean();
+        when(transactionManagerProvider.getIfAvailable()).thenReturn(transactionManager);
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        doAnswer(invocation -> {
+            timerRecordedBeforeCommit.set(meterRegistry.find(FacadeMetrics.TIMER_NAME).timer() != null);
+            return null;
+        }).when(transactionManager).commit(status);
+        when(userService.createUser(any())).thenAnswer(invocation -> {
+            UserDto userDto = invocation.getArgument(0);
+            userDto.setId(1);
+            return userDto;
+        });
+        when(bookService.createBooks(List.of())).thenReturn(List.of());
+        UserBookRequest request = request();
+        request.setBookRequests(List.of());
+        UserDataFacade userDataFacade = new UserDataFacade(userService, bookService, new UserMapperImpl(),
+                new BookMapperImpl(), new FacadeMetrics(meterRegistry),
+                new OptimisticLockRetry(3, Duration.ZERO, Duration.ZERO), idempotencyStore,
+                new UserVersions(100, Duration.ofMinutes(1)), bookWriteBehind, transactionManagerProvider);
+
+        //when
+        userDataFacade.createUserWithBooks(request, "rq-1", "fp-1");
+
+        //then
+        assertThat(timerRecordedBeforeCommit).isFalse();
+        assertThat(meterRegistry.get(FacadeMetrics.TIMER_NAME)
+                .tag("operation", "createUserWithBooks")
+                .tag("outcome", "success")
+                .timer()
+                .count()).isEqualTo(1);
+        verify(idempotencyStore).save(eq("rq-1"), eq("fp-1"), any());
+    }
+
+    @Test
+    @DisplayName("Книга неизвестного пользователя отклоняется до постановки в очередь записи.")
+    void addBookToUser_UnknownOwnerRejectedBeforeQueueing() {
+        //given
+        when(userService.getUserById(404)).thenThrow(new NotFoundException("Person with ID: 404 not found"));
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle("title");
+        bookRequest.setAuthor("author");
+        bookRequest.setPageCount(100);
+        UserDataFacade userDataFacade = new UserDataFacade(userService, bookService, new UserMapperImpl(),
+                new BookMapperImpl(), new FacadeMetrics(new SimpleMeterRegistry()),
+                new OptimisticLockRetry(3, Duration.ZERO, Duration.ZERO), idempotencyStore,
+                new UserVersions(100, Duration.ofMinutes(1)), bookWriteBehind, transactionManagerProvider);
+
+        //when
+        Throwable thrown = catchThrowable(() -> userDataFacade.addBookToUser(404, bookRequest));
+
+        //then
+        assertThat(thrown).isInstanceOf(NotFoundException.class);
+        verifyNoInteractions(bookWriteBehind);
+    }
+
+    private static UserBookRequest request() {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("name");
+        userRequest.setTitle("title");
+        userRequest.setAge(30);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        return request;
+    }
+}
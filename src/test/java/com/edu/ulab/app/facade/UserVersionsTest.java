@@ -0,0 +1,122 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.impl.CachingUserService;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserVersions}.
+ */
+@UnitTest
+@DisplayName("Testing user versions functionality.")
+public class UserVersionsTest {
+
+    @Test
+    @DisplayName("Версия не меняется между чтениями и меняется после изменения пользователя.")
+    void current_ChangesOnlyAfterBump() {
+        //given
+        UserVersions userVersions = new UserVersions(100, Duration.ofMinutes(1));
+        String version = userVersions.current(1);
+
+        //when
+        String repeated = userVersions.current(1);
+        userVersions.bump(1);
+
+        //then
+        assertThat(repeated).isEqualTo(version);
+        assertThat(userVersions.current(1)).isNotEqualTo(version);
+        assertThat(userVersions.current(2)).isNotEqualTo(version);
+    }
+
+    @Test
+    @DisplayName("Внутри транзакции версия меняется только после коммита.")
+    void bump_InTransactionAppliesAfterCommit() {
+        //given
+        UserVersions userVersions = new UserVersions(100, Duration.ofMinutes(1));
+        String version = userVersions.current(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            userVersions.bump(1);
+            String beforeCommit = userVersions.current(1);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+
+            //then
+            assertThat(beforeCommit).isEqualTo(version);
+            assertThat(userVersions.current(1)).isNotEqualTo(version);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Новая версия выдаётся только после повторного вытеснения кэша, даже если смена версии зарегистрирована раньше.")
+    void bump_PublishedAfterPostCommitEviction() {
+        //given
+        UserVersions userVersions = new UserVersions(100, Duration.ofMinutes(1));
+        UserServiceImplTemplate backend = mock(UserServiceImplTemplate.class);
+        CachingUserService userService = new CachingUserService(backend,
+                Caffeine.newBuilder().build(),
+                Caffeine.newBuilder().build(),
+                Caffeine.newBuilder().build());
+        UserDto stale = new UserDto(1, "old name", "test title", 11);
+        UserDto updated = new UserDto(1, "new name", "test title", 11);
+        when(backend.getUserById(1)).thenReturn(stale, stale, updated);
+        userService.getUserById(1);
+        String version = userVersions.current(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            userVersions.bump(1);
+            userService.updateUser(updated);
+            // параллельное чтение до коммита снова кладёт в кэш старое значение
+            userService.getUserById(1);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            String afterCommit = userVersions.current(1);
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+
+            //then
+            assertThat(afterCommit).isEqualTo(version);
+            assertThat(userVersions.current(1)).isNotEqualTo(version);
+            assertThat(userService.getUserById(1).getFullName()).isEqualTo("new name");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("После отката версия не меняется.")
+    void bump_NotAppliedOnRollback() {
+        //given
+        UserVersions userVersions = new UserVersions(100, Duration.ofMinutes(1));
+        String version = userVersions.current(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            userVersions.bump(1);
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            //then
+            assertThat(userVersions.current(1)).isEqualTo(version);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.edu.ulab.app.metrics;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.NotFoundException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link FacadeMetrics}.
+ */
+@UnitTest
+@DisplayName("Testing facade metrics functionality.")
+public class FacadeMetricsTest {
+
+    @Test
+    @DisplayName("Таймер регистрируется под user.facade с тегами операции и исхода.")
+    void record_RegistersTimerWithOperationAndOutcome() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FacadeMetrics facadeMetrics = new FacadeMetrics(meterRegistry);
+
+        //when
+        String result = facadeMetrics.record("getUserWithBooks", () -> "done");
+        facadeMetrics.record("getUserWithBooks", () -> "again");
+        assertThatThrownBy(() -> facadeMetrics.record("getUserWithBooks", () -> {
+            throw new NotFoundException("Person with ID: 1 not found");
+        })).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> facadeMetrics.record("deleteUserWithBooks", () -> {
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        //then
+        assertThat(result).isEqualTo("done");
+        assertThat(timer(meterRegistry, "getUserWithBooks", "success").count()).isEqualTo(2);
+        assertThat(timer(meterRegistry, "getUserWithBooks", "NotFoundException").count()).isEqualTo(1);
+        assertThat(timer(meterRegistry, "deleteUserWithBooks", "conflict").count()).isEqualTo(1);
+        assertThat(meterRegistry.find(FacadeMetrics.TIMER_NAME).timers()).hasSize(3);
+    }
+
+    private static Timer timer(SimpleMeterRegistry meterRegistry, String operation, String outcome) {
+        return meterRegistry.get(FacadeMetrics.TIMER_NAME)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
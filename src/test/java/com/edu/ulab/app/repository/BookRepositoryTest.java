@@ -1,9 +1,11 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
 import com.vladmihalcea.sql.SQLStatementCountValidator;
+import net.ttddyy.dsproxy.QueryCountHolder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,6 +14,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
+
 import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -30,7 +34,7 @@ public class BookRepositoryTest {
         SQLStatementCountValidator.reset();
     }
 
-    @DisplayName("Сохранить книгу и автора. Число select должно равняться 1")
+    @DisplayName("Сохранить книгу и автора. Идентификаторы из блоков последовательности: не больше select на сущность")
     @Test
     @Rollback
     @Sql({"classpath:sql/1_clear_schema.sql",
@@ -59,7 +63,28 @@ public class BookRepositoryTest {
         //Then
         assertThat(result.getPageCount()).isEqualTo(1000);
         assertThat(result.getTitle()).isEqualTo("test");
-        assertSelectCount(2);
+        // у пользователя и книги свои блоки идентификаторов, закэшированные генератором на всю JVM
+        assertThat(QueryCountHolder.getGrandTotal().getSelect()).isLessThanOrEqualTo(2);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Книги пользователя сразу в виде DTO. Один select без загрузки владельца")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findDtosByPersonId_thenAssertDmlCount() {
+        //When
+        List<BookDto> books = bookRepository.findDtosByPersonId(1001);
+
+        //Then
+        assertThat(books).extracting(BookDto::getId).containsExactly(2002, 3003);
+        assertThat(books).extracting(BookDto::getUserId).containsOnly(1001);
+        assertSelectCount(1);
         assertInsertCount(0);
         assertUpdateCount(0);
         assertDeleteCount(0);
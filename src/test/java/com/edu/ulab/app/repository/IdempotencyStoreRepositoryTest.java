@@ -0,0 +1,46 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.service.IdempotencyStore.StoredResponse;
+import com.edu.ulab.app.service.impl.IdempotencyStoreTemplate;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты хранения ответов {@link IdempotencyStoreTemplate} на реальной базе.
+ */
+@SystemJpaTest
+public class IdempotencyStoreRepositoryTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @DisplayName("Ответ сохраняется с отпечатком запроса, повторная запись отклоняется")
+    @Test
+    void saveAndFind_KeepsFingerprint() {
+        //Given
+        IdempotencyStoreTemplate store = new IdempotencyStoreTemplate(jdbcTemplate, new ObjectMapper(),
+                Duration.ofHours(1));
+        UserBookResponse response = UserBookResponse.builder().userId(1).booksIdList(List.of(2, 3)).build();
+
+        //When
+        store.save("rq-store", "fp-1", response);
+
+        //Then
+        assertThat(store.find("rq-store", UserBookResponse.class))
+                .contains(new StoredResponse<>("fp-1", response));
+        assertThat(store.find("rq-missing", UserBookResponse.class)).isEmpty();
+        assertThatThrownBy(() -> store.save("rq-store", "fp-2", response))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+}
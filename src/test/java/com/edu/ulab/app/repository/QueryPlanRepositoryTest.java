@@ -0,0 +1,226 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.QueryCaptureListener;
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserExportServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Планы запросов {@link UserRepository}, {@link BookRepository} и SQL сервисов на JdbcTemplate.
+ * <p>
+ * Таблицы заполняются объёмом, при котором планировщик уже не выбирает полный проход ради экономии
+ * на индексе. Каждый выполненный запрос повторяется через {@code EXPLAIN (FORMAT JSON)} с теми же параметрами,
+ * и тест падает, если в плане есть последовательное чтение большой таблицы с фильтром - значит,
+ * для условия запроса не хватает индекса.
+ */
+@SystemJpaTest
+@Sql({"classpath:schema.sql",
+        "classpath:sql/1_clear_schema.sql",
+        "classpath:sql/4_insert_plan_data.sql"
+})
+public class QueryPlanRepositoryTest {
+    private static final Set<String> LARGE_TABLES = Set.of("person", "book");
+    private static final int PERSON_ID = 1000042;
+    private static final int BOOK_ID = 2000042;
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    SequenceIdAllocator idAllocator;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    QueryCaptureListener queryCaptureListener;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        queryCaptureListener.reset();
+    }
+
+    @DisplayName("Запросы репозиториев не читают большие таблицы целиком ради фильтра")
+    @Test
+    void repositoryQueries_UseIndexes() throws Exception {
+        //Given
+        List<Method> methods = new ArrayList<>();
+        methods.addAll(Arrays.asList(UserRepository.class.getDeclaredMethods()));
+        methods.addAll(Arrays.asList(BookRepository.class.getDeclaredMethods()));
+
+        //When
+        for (Method method : methods) {
+            Object repository = method.getDeclaringClass() == UserRepository.class ? userRepository : bookRepository;
+            ReflectionUtils.invokeMethod(method, repository, sampleArgs(method));
+        }
+        for (UserFilterDto filter : sampleFilters()) {
+            userRepository.findPageAfterId(PERSON_ID - 1, filter, 20);
+        }
+
+        //Then
+        assertNoFilteredSeqScans(queryCaptureListener.getQueries());
+    }
+
+    @DisplayName("SQL сервисов на JdbcTemplate не читает большие таблицы целиком ради фильтра")
+    @Test
+    void templateQueries_UseIndexes() throws Exception {
+        //Given
+        UserServiceImplTemplate userService = new UserServiceImplTemplate(jdbcTemplate, idAllocator);
+        BookServiceImplTemplate bookService = new BookServiceImplTemplate(jdbcTemplate, idAllocator);
+        UserExportServiceImplTemplate exportService = new UserExportServiceImplTemplate(jdbcTemplate, 1000);
+
+        //When
+        UserDto user = userService.getUserById(PERSON_ID);
+        userService.getUserBookIds(PERSON_ID);
+        userService.getUsersByIds(List.of(PERSON_ID, PERSON_ID + 1));
+        for (UserFilterDto filter : sampleFilters()) {
+            userService.findUsers(filter, PERSON_ID - 1, 20);
+        }
+        userService.updateUser(new UserDto(PERSON_ID, "new name", null, 0, user.getVersion()));
+        assertThatThrownBy(() -> userService.updateUser(new UserDto(PERSON_ID, "new name", null, 0, -1)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        UserDto created = userService.createUser(new UserDto(null, "plan user", "plan title", 30));
+        userService.createUsers(List.of(new UserDto(null, "plan user", "plan title", 30)));
+
+        BookDto book = bookService.getBookById(BOOK_ID);
+        bookService.getBookByUserId(PERSON_ID);
+        bookService.getBookIdsByUserIds(List.of(PERSON_ID, PERSON_ID + 1));
+        bookService.updateBook(new BookDto(BOOK_ID, null, "new title", null, 0, book.getVersion()));
+        assertThatThrownBy(() -> bookService.updateBook(new BookDto(BOOK_ID, null, "new title", null, 0, -1)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        bookService.updateBooks(List.of(new BookDto(BOOK_ID + 1, PERSON_ID, "title", "author", 100)));
+        bookService.createBook(new BookDto(null, created.getId(), "title", "author", 100));
+        bookService.createBooks(List.of(new BookDto(null, created.getId(), "title", "author", 100)));
+        bookService.deleteBookById(BOOK_ID);
+        bookService.deleteBooksByIds(List.of(BOOK_ID + 2));
+        bookService.deleteBooksByUserId(PERSON_ID + 1);
+        userService.deleteUserById(PERSON_ID + 2);
+        exportService.exportUsersWithBooks(exported -> {
+        });
+
+        //Then
+        List<QueryInfo> queries = queryCaptureListener.getQueries();
+        assertThat(sqlConstants(UserServiceImplTemplate.class, BookServiceImplTemplate.class,
+                UserExportServiceImplTemplate.class))
+                .allSatisfy(sql -> assertThat(queries)
+                        .as("No query executed for %s", sql)
+                        .anyMatch(query -> query.getQuery().startsWith(sql)));
+        assertNoFilteredSeqScans(queries);
+    }
+
+    private void assertNoFilteredSeqScans(List<QueryInfo> queries) throws Exception {
+        for (QueryInfo query : queries) {
+            JsonNode plan = explain(query);
+            List<String> scans = new ArrayList<>();
+            collectFilteredSeqScans(plan.get(0).get("Plan"), scans);
+            assertThat(scans)
+                    .as("Sequential scan in plan of %s%n%s", query.getQuery(), plan.toPrettyString())
+                    .isEmpty();
+        }
+    }
+
+    private JsonNode explain(QueryInfo query) throws Exception {
+        PreparedStatementCallback<String> explainCallback = ps -> {
+            if (!query.getParametersList().isEmpty()) {
+                for (ParameterSetOperation operation : query.getParametersList().get(0)) {
+                    ReflectionUtils.invokeMethod(operation.getMethod(), ps, operation.getArgs());
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        };
+        return objectMapper.readTree(jdbcTemplate.execute("EXPLAIN (FORMAT JSON) " + query.getQuery(), explainCallback));
+    }
+
+    private static void collectFilteredSeqScans(JsonNode node, List<String> scans) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())
+                && LARGE_TABLES.contains(node.path("Relation Name").asText())
+                && node.has("Filter")) {
+            scans.add(node.path("Relation Name").asText() + ": " + node.path("Filter").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectFilteredSeqScans(child, scans);
+        }
+    }
+
+    /**
+     * Наборы фильтров страницы пользователей: у каждого свой запрос и свой план.
+     */
+    private static List<UserFilterDto> sampleFilters() {
+        String title = "plan-title-" + PERSON_ID;
+        return List.of(
+                new UserFilterDto(null, null, null),
+                new UserFilterDto(title, null, null),
+                new UserFilterDto(null, 30, 30),
+                new UserFilterDto(null, 18, 80),
+                new UserFilterDto(title, 18, 80));
+    }
+
+    private static Object[] sampleArgs(Method method) {
+        return Arrays.stream(method.getParameterTypes())
+                .map(type -> {
+                    if (type == Integer.class || type == int.class) {
+                        return PERSON_ID;
+                    }
+                    if (type == String.class) {
+                        return "plan-title-" + PERSON_ID;
+                    }
+                    if (Collection.class.isAssignableFrom(type)) {
+                        return List.of(BOOK_ID, BOOK_ID + 1);
+                    }
+                    if (type == Pageable.class) {
+                        return PageRequest.of(0, 20);
+                    }
+                    throw new IllegalArgumentException("No sample value for " + type + " in " + method);
+                })
+                .toArray();
+    }
+
+    private static List<String> sqlConstants(Class<?>... classes) {
+        List<String> constants = new ArrayList<>();
+        for (Class<?> type : classes) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                    ReflectionUtils.makeAccessible(field);
+                    constants.add((String) ReflectionUtils.getField(field, null));
+                }
+            }
+        }
+        return constants;
+    }
+}
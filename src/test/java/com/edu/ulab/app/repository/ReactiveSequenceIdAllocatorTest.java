@@ -0,0 +1,56 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.UnitTest;
+import io.r2dbc.spi.Row;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link ReactiveSequenceIdAllocator}.
+ */
+@UnitTest
+@DisplayName("Testing reactive sequence id allocator functionality.")
+public class ReactiveSequenceIdAllocatorTest {
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    DatabaseClient databaseClient;
+
+    @Test
+    @DisplayName("Реактивные вставки и JDBC берут идентификаторы подряд из одного блока pooled-lo.")
+    void nextIds_SharesBlocksWithJdbc() {
+        //given
+        SequenceIdAllocator blocks = new SequenceIdAllocator(jdbcTemplate);
+        ReactiveSequenceIdAllocator idAllocator = new ReactiveSequenceIdAllocator(blocks, databaseClient);
+        when(databaseClient.sql(anyString()).bind(eq(0), eq(1)).map(ArgumentMatchers.<Function<Row, Long>>any()).all())
+                .thenReturn(Flux.just(201L));
+
+        //when
+        List<Integer> first = idAllocator.nextIds(1).block();
+        List<Integer> second = idAllocator.nextIds(3).block();
+        List<Integer> jdbc = blocks.nextIds(2);
+
+        //then
+        assertThat(first).containsExactly(201);
+        assertThat(second).containsExactly(202, 203, 204);
+        assertThat(jdbc).isEqualTo(IntStream.rangeClosed(205, 206).boxed().toList());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,52 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link SequenceIdAllocator}.
+ */
+@UnitTest
+@DisplayName("Testing sequence id allocator functionality.")
+public class SequenceIdAllocatorTest {
+    @InjectMocks
+    SequenceIdAllocator idAllocator;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Идентификаторы выдаются из блоков pooled-lo, база опрашивается только за новыми блоками.")
+    void nextIds_AllocatesFromBlocks() {
+        //given
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2))).thenReturn(List.of(1L, 301L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(501L));
+
+        //when
+        List<Integer> first = idAllocator.nextIds(150);
+        List<Integer> second = idAllocator.nextIds(50);
+        Integer third = idAllocator.nextId();
+
+        //then
+        assertThat(first.subList(0, 100)).isEqualTo(IntStream.rangeClosed(1, 100).boxed().toList());
+        assertThat(first.subList(100, 150)).isEqualTo(IntStream.rangeClosed(301, 350).boxed().toList());
+        assertThat(second).isEqualTo(IntStream.rangeClosed(351, 400).boxed().toList());
+        assertThat(third).isEqualTo(501);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), anyInt());
+    }
+}
@@ -0,0 +1,55 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты пакетного чтения {@link UserServiceImplTemplate} и {@link BookServiceImplTemplate} на реальной базе.
+ */
+@SystemJpaTest
+@Sql({"classpath:schema.sql"})
+public class TemplateBatchReadRepositoryTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    SequenceIdAllocator idAllocator;
+
+    @DisplayName("Пакетное чтение пользователей и их книг. Отсутствующие пропускаются, книги по возрастанию")
+    @Test
+    void getUsersAndBookIds_SkipMissing() {
+        //Given
+        UserServiceImplTemplate userService = new UserServiceImplTemplate(jdbcTemplate, idAllocator);
+        BookServiceImplTemplate bookService = new BookServiceImplTemplate(jdbcTemplate, idAllocator);
+        List<UserDto> users = userService.createUsers(List.of(
+                new UserDto(null, "reader", "reader", 30),
+                new UserDto(null, "idle", "reader", 40)));
+        Integer readerId = users.get(0).getId();
+        Integer idleId = users.get(1).getId();
+        List<BookDto> books = bookService.createBooks(List.of(
+                new BookDto(null, readerId, "first", "author", 100),
+                new BookDto(null, readerId, "second", "author", 200)));
+        Integer missingId = idleId + 1000;
+
+        //When
+        List<UserDto> found = userService.getUsersByIds(List.of(idleId, missingId, readerId));
+        Map<Integer, List<Integer>> bookIds = bookService.getBookIdsByUserIds(List.of(idleId, missingId, readerId));
+
+        //Then
+        assertThat(found).extracting(UserDto::getId).containsExactlyInAnyOrder(idleId, readerId);
+        assertThat(bookIds).containsOnlyKeys(readerId);
+        assertThat(bookIds.get(readerId)).containsExactly(books.get(0).getId(), books.get(1).getId());
+    }
+}
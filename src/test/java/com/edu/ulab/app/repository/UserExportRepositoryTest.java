@@ -0,0 +1,73 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.facade.UserBookExportFacade;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserExportServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты выгрузки {@link UserExportServiceImplTemplate} через {@link UserBookExportFacade} на реальной базе.
+ */
+@SystemJpaTest
+@Sql({"classpath:schema.sql"})
+public class UserExportRepositoryTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    SequenceIdAllocator idAllocator;
+
+    @DisplayName("Строки LEFT JOIN собираются в одну запись на пользователя, по записи на строку NDJSON")
+    @Test
+    void exportUsersWithBooks_GroupsRowsByUser() throws IOException {
+        //Given
+        UserServiceImplTemplate userService = new UserServiceImplTemplate(jdbcTemplate, idAllocator);
+        BookServiceImplTemplate bookService = new BookServiceImplTemplate(jdbcTemplate, idAllocator);
+        List<UserDto> users = userService.createUsers(List.of(
+                new UserDto(null, "idle", "reader", 40),
+                new UserDto(null, "reader", "reader", 30),
+                new UserDto(null, "single", "reader", 20)));
+        List<BookDto> books = bookService.createBooks(List.of(
+                new BookDto(null, users.get(1).getId(), "first", "author", 100),
+                new BookDto(null, users.get(1).getId(), "second", "author", 200),
+                new BookDto(null, users.get(2).getId(), "third", "author", 300)));
+        ObjectMapper objectMapper = new ObjectMapper();
+        UserBookExportFacade exportFacade = new UserBookExportFacade(
+                new UserExportServiceImplTemplate(jdbcTemplate, 2), objectMapper);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //When
+        exportFacade.exportUsersWithBooks(output);
+
+        //Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        List<UserBooksDto> exported = new ArrayList<>();
+        for (String line : lines) {
+            exported.add(objectMapper.readValue(line, UserBooksDto.class));
+        }
+        assertThat(exported).extracting(userBooks -> userBooks.getUser().getId())
+                .containsExactly(users.get(0).getId(), users.get(1).getId(), users.get(2).getId());
+        assertThat(exported.get(0).getBooks()).isEmpty();
+        assertThat(exported.get(1).getBooks()).extracting(BookDto::getId)
+                .containsExactly(books.get(0).getId(), books.get(1).getId());
+        assertThat(exported.get(2).getBooks()).extracting(BookDto::getTitle).containsExactly("third");
+        assertThat(exported.get(1).getUser().getFullName()).isEqualTo("reader");
+    }
+}
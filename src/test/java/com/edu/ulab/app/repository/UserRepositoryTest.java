@@ -1,8 +1,11 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilterDto;
 import com.edu.ulab.app.entity.Person;
 import com.vladmihalcea.sql.SQLStatementCountValidator;
+import net.ttddyy.dsproxy.QueryCountHolder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
+
 import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -26,7 +31,7 @@ public class UserRepositoryTest {
         SQLStatementCountValidator.reset();
     }
 
-    @DisplayName("Сохранить юзера. Число select должно равняться 1")
+    @DisplayName("Сохранить юзера. Идентификатор берётся из блока последовательности: не больше одного select")
     @Test
     @Rollback
     @Sql({"classpath:sql/1_clear_schema.sql",
@@ -45,7 +50,29 @@ public class UserRepositoryTest {
 
         //Then
         assertThat(result.getAge()).isEqualTo(111);
-        assertSelectCount(1);
+        // блок идентификаторов кэшируется генератором на всю JVM, поэтому select только на первый идентификатор блока
+        assertThat(QueryCountHolder.getGrandTotal().getSelect()).isLessThanOrEqualTo(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Страница пользователей после идентификатора с фильтром по возрасту. Один select")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findPageAfterId_thenAssertDmlCount() {
+        //When
+        List<UserDto> firstPage = userRepository.findPageAfterId(0, new UserFilterDto(null, 50, 60), 10);
+        List<UserDto> nextPage = userRepository.findPageAfterId(1001, new UserFilterDto(null, 50, 60), 10);
+
+        //Then
+        assertThat(firstPage).extracting(UserDto::getId).containsExactly(1001);
+        assertThat(nextPage).isEmpty();
+        assertSelectCount(2);
         assertInsertCount(0);
         assertUpdateCount(0);
         assertDeleteCount(0);
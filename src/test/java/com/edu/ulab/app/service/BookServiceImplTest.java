@@ -5,6 +5,7 @@ import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.service.impl.BookServiceImpl;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.DisplayName;
@@ -16,6 +17,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManager;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
 
@@ -35,6 +39,12 @@ public class BookServiceImplTest {
     @Mock
     BookMapper bookMapper;
 
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    SequenceIdAllocator idAllocator;
+
     @Test
     @DisplayName("Создание книги. Должно пройти успешно.")
     void saveBook_Test() {
@@ -80,6 +90,39 @@ public class BookServiceImplTest {
         assertEquals(1, bookDtoResult.getId());
     }
 
+    @Test
+    @DisplayName("Пакетное создание книг. Идентификаторы возвращаются в порядке запроса.")
+    void saveBooks_Test() {
+        //given
+        BookDto firstDto = new BookDto(null, 1, "first title", "first author", 100);
+        BookDto secondDto = new BookDto(null, 1, "second title", "second author", 200);
+
+        Book first = new Book();
+        first.setTitle("first title");
+        Book second = new Book();
+        second.setTitle("second title");
+
+        Book savedFirst = new Book();
+        savedFirst.setId(10);
+        Book savedSecond = new Book();
+        savedSecond.setId(11);
+
+        //when
+
+        when(bookMapper.bookDtoToBook(firstDto)).thenReturn(first);
+        when(bookMapper.bookDtoToBook(secondDto)).thenReturn(second);
+        when(idAllocator.nextIds(2)).thenReturn(List.of(10, 11));
+        when(bookRepository.saveAll(List.of(first, second))).thenReturn(List.of(savedFirst, savedSecond));
+        when(bookMapper.bookToBookDto(savedFirst)).thenReturn(new BookDto(10, 1, "first title", "first author", 100));
+        when(bookMapper.bookToBookDto(savedSecond)).thenReturn(new BookDto(11, 1, "second title", "second author", 200));
+
+        //then
+        List<BookDto> result = bookService.createBooks(List.of(firstDto, secondDto));
+        assertEquals(List.of(10, 11), result.stream().map(BookDto::getId).toList());
+        assertEquals(10, first.getId());
+        assertEquals(11, second.getId());
+    }
+
 
     // update
     // get
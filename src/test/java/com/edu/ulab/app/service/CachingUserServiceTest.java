@@ -0,0 +1,118 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.impl.CachingUserService;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link CachingUserService}.
+ */
+@UnitTest
+@DisplayName("Testing user cache functionality.")
+public class CachingUserServiceTest {
+    @Mock
+    UserServiceImplTemplate userServiceImplTemplate;
+
+    CachingUserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new CachingUserService(userServiceImplTemplate,
+                Caffeine.newBuilder().build(),
+                Caffeine.newBuilder().build(),
+                Caffeine.newBuilder().build());
+    }
+
+    @Test
+    @DisplayName("Повторное чтение пользователя идёт из кэша, обновление его вытесняет.")
+    void getUser_CachedUntilUpdate() {
+        //given
+        UserDto userDto = new UserDto(1, "test name", "test title", 11);
+
+        //when
+        when(userServiceImplTemplate.getUserById(1)).thenReturn(userDto);
+
+        //then
+        assertEquals("test name", userService.getUserById(1).getFullName());
+        assertEquals("test name", userService.getUserById(1).getFullName());
+        verify(userServiceImplTemplate, times(1)).getUserById(1);
+
+        userService.updateUser(userDto);
+        userService.getUserById(1);
+        verify(userServiceImplTemplate, times(2)).getUserById(1);
+    }
+
+    @Test
+    @DisplayName("Старое значение, закэшированное до коммита обновления, вытесняется после завершения транзакции.")
+    void updateUser_InTransactionEvictsAgainAfterCompletion() {
+        //given
+        UserDto stale = new UserDto(1, "old name", "test title", 11);
+        UserDto updated = new UserDto(1, "new name", "test title", 11);
+        when(userServiceImplTemplate.getUserById(1)).thenReturn(stale, stale, updated);
+        userService.getUserById(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            userService.updateUser(updated);
+            String beforeCommit = userService.getUserById(1).getFullName();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+
+            //then
+            assertEquals("old name", beforeCommit);
+            assertEquals("new name", userService.getUserById(1).getFullName());
+            verify(userServiceImplTemplate, times(3)).getUserById(1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Пакетное чтение загружает одним запросом только отсутствующих в кэше пользователей.")
+    void getUsersByIds_LoadsOnlyMissing() {
+        //given
+        UserDto first = new UserDto(1, "first", "test title", 11);
+        UserDto second = new UserDto(2, "second", "test title", 12);
+
+        //when
+        when(userServiceImplTemplate.getUserById(1)).thenReturn(first);
+        when(userServiceImplTemplate.getUsersByIds(List.of(2, 3))).thenReturn(List.of(second));
+        userService.getUserById(1);
+
+        //then
+        assertEquals(List.of("second", "first"), userService.getUsersByIds(List.of(2, 1, 3))
+                .stream()
+                .map(UserDto::getFullName)
+                .toList());
+        verify(userServiceImplTemplate, times(1)).getUsersByIds(List.of(2, 3));
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя вытесняет идентификаторы его книг.")
+    void deleteUser_EvictsBookIds() {
+        //when
+        when(userServiceImplTemplate.getUserBookIds(1)).thenReturn(List.of(2, 3));
+
+        //then
+        assertEquals(List.of(2, 3), userService.getUserBookIds(1));
+        userService.deleteUserById(1);
+        userService.getUserBookIds(1);
+        verify(userServiceImplTemplate, times(2)).getUserBookIds(1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserServiceImplTemplate}.
+ */
+@UnitTest
+@DisplayName("Testing JdbcTemplate user functionality.")
+public class UserServiceImplTemplateTest {
+    @InjectMocks
+    UserServiceImplTemplate userService;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Обновление - один запрос, пустые поля передаются как null и не меняют столбцы.")
+    @SuppressWarnings("unchecked")
+    void updateUser_SingleStatementPartialUpdate() {
+        //given
+        UserDto userDto = new UserDto(1, null, "new title", 0);
+        UserDto updated = new UserDto(1, "old name", "new title", 30, 4);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+
+        //when
+        when(jdbcTemplate.query(anyString(), args.capture(), any(int[].class), any(RowMapper.class)))
+                .thenReturn(List.of(updated));
+        UserDto result = userService.updateUser(userDto);
+
+        //then
+        assertThat(result).isEqualTo(updated);
+        assertThat(args.getValue()).containsExactly(null, "new title", null, 1, null);
+        verify(jdbcTemplate, never()).queryForRowSet(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Ни одной обновлённой строки: без версии - NotFoundException, с версией у существующей строки - конфликт.")
+    @SuppressWarnings("unchecked")
+    void updateUser_ZeroRows() {
+        //given
+        UserDto withoutVersion = new UserDto(1, "name", "title", 30);
+        UserDto withVersion = new UserDto(2, "name", "title", 30, 3);
+
+        //when
+        when(jdbcTemplate.query(anyString(), any(Object[].class), any(int[].class), any(RowMapper.class)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(2))).thenReturn(true);
+
+        //then
+        assertThatThrownBy(() -> userService.updateUser(withoutVersion)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userService.updateUser(withVersion))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+}
@@ -4,7 +4,9 @@ import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.SequenceIdAllocator;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.DisplayName;
@@ -16,7 +18,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -35,6 +42,9 @@ public class UserServiceImplTest {
     @Mock
     UserMapper userMapper;
 
+    @Mock
+    SequenceIdAllocator idAllocator;
+
     @Test
     @DisplayName("Создание пользователя. Должно пройти успешно.")
     void savePerson_Test() {
@@ -76,10 +86,41 @@ public class UserServiceImplTest {
         assertEquals(1, userDtoResult.getId());
     }
 
+    @Test
+    @DisplayName("Удаление пользователя вместе с книгами - один запрос, отсутствующий пользователь - NotFoundException.")
+    void deleteUserById_SingleStatement() {
+        //given
+        when(userRepository.deleteWithBooksById(1)).thenReturn(1);
+        when(userRepository.deleteWithBooksById(2)).thenReturn(0);
+
+        //when
+        userService.deleteUserById(1);
+
+        //then
+        verify(userRepository).deleteWithBooksById(1);
+        assertThatThrownBy(() -> userService.deleteUserById(2)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Чтение пользователя идёт через проекцию в DTO, сущность не загружается и не маппится.")
+    void getUserById_ReadsProjection() {
+        //given
+        UserDto userDto = new UserDto(1, "test name", "test title", 11, 0);
+        when(userRepository.findDtoById(1)).thenReturn(Optional.of(userDto));
+        when(userRepository.findDtoById(2)).thenReturn(Optional.empty());
+
+        //when
+        UserDto result = userService.getUserById(1);
+
+        //then
+        assertEquals(userDto, result);
+        verifyNoInteractions(userMapper);
+        assertThatThrownBy(() -> userService.getUserById(2)).isInstanceOf(NotFoundException.class);
+    }
+
     // update
     // get
     // get all
-    // delete
 
     // * failed
     //         doThrow(dataInvalidException).when(testRepository)
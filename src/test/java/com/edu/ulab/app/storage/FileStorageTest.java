@@ -0,0 +1,161 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.UnitTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Тестирование функционала {@link FileStorage}.
+ */
+@UnitTest
+@DisplayName("Testing file storage functionality.")
+public class FileStorageTest {
+    private static final long NO_AUTO_COMPACTION = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Данные восстанавливаются из снимка и журнала после перезапуска.")
+    void reopen_RecoversSnapshotAndJournal() throws IOException {
+        //given
+        StoredUser user;
+        StoredBook kept;
+        try (FileStorage storage = open()) {
+            user = storage.insertUser(new StoredUser(0, "Иван", "reader", 20));
+            List<StoredBook> books = storage.insertBooks(List.of(
+                    new StoredBook(0, user.id(), "title 1", "author", 100),
+                    new StoredBook(0, user.id(), "title 2", null, 200)));
+            storage.compact();
+            storage.deleteBooks(new int[]{books.get(0).id()});
+            kept = books.get(1);
+            storage.updateUser(new StoredUser(user.id(), "Иван Петров", "reader", 21));
+        }
+
+        //when
+        try (FileStorage storage = open()) {
+
+            //then
+            assertThat(storage.getUser(user.id()).fullName()).isEqualTo("Иван Петров");
+            assertThat(storage.getBooksByUser(user.id())).containsExactly(kept);
+            assertThat(storage.insertBook(new StoredBook(0, user.id(), "title 3", "author", 300)).id())
+                    .isGreaterThan(kept.id());
+        }
+    }
+
+    @Test
+    @DisplayName("Оборванная запись в конце журнала отбрасывается.")
+    void reopen_TruncatesTornTail() throws IOException {
+        //given
+        StoredUser user;
+        try (FileStorage storage = open()) {
+            user = storage.insertUser(new StoredUser(0, "name", "reader", 20));
+        }
+        Path journal = Journal.path(directory, 0);
+        long validSize = Files.size(journal);
+        Files.write(journal, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        //when
+        try (FileStorage storage = open()) {
+
+            //then
+            assertThat(storage.getUser(user.id())).isEqualTo(user);
+            assertThat(Files.size(journal)).isEqualTo(validSize);
+        }
+    }
+
+    @Test
+    @DisplayName("Пачка книг - одна запись журнала: оборванная пачка не восстанавливается даже частично.")
+    void reopen_DropsTornBatchWhole() throws IOException {
+        //given
+        StoredUser user;
+        try (FileStorage storage = open()) {
+            user = storage.insertUser(new StoredUser(0, "name", "reader", 20));
+            storage.insertBooks(List.of(
+                    new StoredBook(0, user.id(), "title 1", "author", 100),
+                    new StoredBook(0, user.id(), "title 2", "author", 200),
+                    new StoredBook(0, user.id(), "title 3", "author", 300)));
+        }
+        Path journal = Journal.path(directory, 0);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        //when
+        try (FileStorage storage = open()) {
+
+            //then
+            assertThat(storage.getUser(user.id())).isEqualTo(user);
+            assertThat(storage.getBooksByUser(user.id())).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Если журнал не принял изменение, данные в памяти не меняются.")
+    void insertBooks_RejectedByJournalLeavesMemoryUnchanged() throws IOException {
+        //given
+        FileStorage storage = open();
+        StoredUser user = storage.insertUser(new StoredUser(0, "name", "reader", 20));
+        storage.close();
+
+        //when
+        //then
+        assertThatThrownBy(() -> storage.insertBooks(List.of(
+                new StoredBook(0, user.id(), "title 1", "author", 100),
+                new StoredBook(0, user.id(), "title 2", "author", 200))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> storage.deleteUser(user.id()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(storage.getUser(user.id())).isEqualTo(user);
+        assertThat(storage.getBooksByUser(user.id())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Если запись не зафиксирована на диске, память и журнал не меняются, а следующие изменения отклоняются.")
+    void insertBooks_FailedFsyncLeavesMemoryAndJournalUnchanged() throws IOException {
+        //given
+        AtomicBoolean diskFailed = new AtomicBoolean();
+        FileStorage storage = new FileStorage(4, directory, NO_AUTO_COMPACTION, Duration.ofHours(1), channel -> {
+            if (diskFailed.get()) {
+                throw new IOException("fsync failed");
+            }
+            channel.force(false);
+        });
+        StoredUser user = storage.insertUser(new StoredUser(0, "name", "reader", 20));
+        diskFailed.set(true);
+
+        //when
+        Throwable failure = catchThrowable(() -> storage.insertBooks(List.of(
+                new StoredBook(0, user.id(), "title 1", "author", 100))));
+
+        //then
+        assertThat(failure).isInstanceOf(UncheckedIOException.class);
+        assertThat(storage.getBooksByUser(user.id())).isEmpty();
+        assertThatThrownBy(() -> storage.insertUser(new StoredUser(0, "other", "reader", 30)))
+                .isInstanceOf(UncheckedIOException.class);
+        storage.close();
+        try (FileStorage reopened = open()) {
+            assertThat(reopened.getUser(user.id())).isEqualTo(user);
+            assertThat(reopened.getBooksByUser(user.id())).isEmpty();
+        }
+    }
+
+    private FileStorage open() throws IOException {
+        return new FileStorage(4, directory, NO_AUTO_COMPACTION, Duration.ofHours(1));
+    }
+}
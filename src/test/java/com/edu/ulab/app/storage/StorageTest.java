@@ -0,0 +1,137 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.NotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link Storage}.
+ */
+@UnitTest
+@DisplayName("Testing storage functionality.")
+public class StorageTest {
+
+    @Test
+    @DisplayName("Книги связываются с владельцем и переносятся к другому пользователю при обновлении.")
+    void updateBooks_MovesBookBetweenUsers() {
+        //given
+        Storage storage = new Storage(4);
+        StoredUser first = storage.insertUser(new StoredUser(0, "first", "reader", 20));
+        StoredUser second = storage.insertUser(new StoredUser(0, "second", "reader", 30));
+        List<StoredBook> books = storage.insertBooks(List.of(
+                new StoredBook(0, first.id(), "title 1", "author", 100),
+                new StoredBook(0, first.id(), "title 2", "author", 200)));
+
+        //when
+        StoredBook moved = books.get(0);
+        storage.updateBooks(List.of(new StoredBook(moved.id(), second.id(), "moved", "author", 100)));
+
+        //then
+        assertThat(storage.getBookIds(first.id())).containsExactly(books.get(1).id());
+        assertThat(storage.getBookIds(second.id())).containsExactly(moved.id());
+        assertThat(storage.getBooksByUser(second.id())).extracting(StoredBook::title).containsExactly("moved");
+    }
+
+    @Test
+    @DisplayName("Пакетное чтение возвращает найденных пользователей и книги тех, у кого они есть.")
+    void getUsers_SkipsMissing() {
+        //given
+        Storage storage = new Storage(4);
+        StoredUser reader = storage.insertUser(new StoredUser(0, "reader", "reader", 20));
+        StoredUser idle = storage.insertUser(new StoredUser(0, "idle", "reader", 30));
+        List<StoredBook> books = storage.insertBooks(List.of(
+                new StoredBook(0, reader.id(), "title 1", "author", 100),
+                new StoredBook(0, reader.id(), "title 2", "author", 200)));
+        int[] ids = {idle.id(), 100, reader.id()};
+
+        //when
+        List<StoredUser> users = storage.getUsers(ids);
+        Map<Integer, int[]> bookIds = storage.getBookIdsByUsers(ids);
+
+        //then
+        assertThat(users).extracting(StoredUser::id).containsExactly(idle.id(), reader.id());
+        assertThat(bookIds).containsOnlyKeys(reader.id());
+        assertThat(bookIds.get(reader.id())).containsExactly(books.get(0).id(), books.get(1).id());
+    }
+
+    @Test
+    @DisplayName("Книга несуществующего пользователя не сохраняется, удаление пользователя удаляет его книги.")
+    void deleteUser_DeletesBooks() {
+        //given
+        Storage storage = new Storage(4);
+        StoredUser user = storage.insertUser(new StoredUser(0, "name", "reader", 20));
+        StoredBook book = storage.insertBook(new StoredBook(0, user.id(), "title", "author", 100));
+
+        //when
+        storage.deleteUser(user.id());
+
+        //then
+        assertThatThrownBy(() -> storage.getBook(book.id())).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> storage.getBookIds(user.id())).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> storage.insertBook(new StoredBook(0, user.id(), "title", "author", 100)))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Страница пользователей идёт по возрастанию идентификатора с учётом фильтра.")
+    void findUsers_KeysetPage() {
+        //given
+        Storage storage = new Storage(2);
+        for (int age = 1; age <= 10; age++) {
+            storage.insertUser(new StoredUser(0, "name " + age, "reader", age));
+        }
+        storage.deleteUser(4);
+
+        //when
+        List<StoredUser> page = storage.findUsers(2, user -> user.age() % 2 == 0, 2);
+
+        //then
+        assertThat(page).extracting(StoredUser::id).containsExactly(6, 8);
+    }
+
+    @Test
+    @DisplayName("Параллельная запись книг разных пользователей не теряет связей.")
+    void insertBooks_Concurrently() throws Exception {
+        //given
+        Storage storage = new Storage(8);
+        int users = 32;
+        int booksPerUser = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //when
+        try {
+            List<Future<StoredUser>> futures = executor.invokeAll(IntStream.range(0, users)
+                    .mapToObj(i -> (Callable<StoredUser>) () -> {
+                        StoredUser user = storage.insertUser(new StoredUser(0, "name " + i, "reader", 20));
+                        for (int j = 0; j < booksPerUser; j++) {
+                            storage.insertBook(new StoredBook(0, user.id(), "title " + j, "author", j + 1));
+                        }
+                        return user;
+                    })
+                    .toList());
+
+            //then
+            for (Future<StoredUser> future : futures) {
+                StoredUser user = future.get();
+                assertThat(storage.getBookIds(user.id())).hasSize(booksPerUser).isSorted();
+                assertThat(storage.getBooksByUser(user.id())).allMatch(book -> book.userId() == user.id());
+            }
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.edu.ulab.app.web.filter;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.metrics.SqlStatementStats;
+import com.edu.ulab.app.metrics.SqlStatementStatsListener;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование функционала {@link HttpRequestFilter}.
+ */
+@UnitTest
+@DisplayName("Testing http request filter functionality.")
+public class HttpRequestFilterTest {
+    private final SqlStatementStatsListener listener = new SqlStatementStatsListener();
+
+    @Test
+    @DisplayName("Запросы к базе считаются отдельно для каждого HTTP-запроса.")
+    void doFilter_CountsStatementsPerRequest() throws Exception {
+        //given
+        HttpRequestFilter filter = new HttpRequestFilter(true);
+        List<SqlStatementStats> seen = new ArrayList<>();
+
+        //when
+        filter.doFilter(request(), new MockHttpServletResponse(), execute(seen,
+                "SELECT * FROM PERSON", "INSERT INTO BOOK VALUES (1)", "SELECT * FROM BOOK"));
+        filter.doFilter(request(), new MockHttpServletResponse(), execute(seen, "DELETE FROM BOOK"));
+        executeQuery("SELECT 1");
+
+        //then
+        assertThat(seen).hasSize(2);
+        assertThat(seen.get(0).getSelectCount()).isEqualTo(2);
+        assertThat(seen.get(0).getInsertCount()).isEqualTo(1);
+        assertThat(seen.get(0).getTotalCount()).isEqualTo(3);
+        assertThat(seen.get(1).getDeleteCount()).isEqualTo(1);
+        assertThat(seen.get(1).getTotalCount()).isEqualTo(1);
+        assertThat(SqlStatementStats.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("Счётчики и MDC сбрасываются, даже если обработка запроса упала.")
+    void doFilter_ResetsStatsOnFailure() {
+        //given
+        HttpRequestFilter filter = new HttpRequestFilter(true);
+
+        //when
+        assertThatThrownBy(() -> filter.doFilter(request(), new MockHttpServletResponse(), (request, response) -> {
+            executeQuery("SELECT * FROM PERSON");
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertThat(SqlStatementStats.current()).isNull();
+        assertThat(MDC.get("requestId")).isNull();
+    }
+
+    private FilterChain execute(List<SqlStatementStats> seen, String... queries) {
+        return (request, response) -> {
+            for (String query : queries) {
+                executeQuery(query);
+            }
+            seen.add(SqlStatementStats.current());
+        };
+    }
+
+    private void executeQuery(String query) {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        executionInfo.setElapsedTime(1);
+        listener.afterQuery(executionInfo, List.of(new QueryInfo(query)));
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/user/get/1");
+        request.addHeader("rqid", "rq-1");
+        return request;
+    }
+}
@@ -0,0 +1,20 @@
+insert into ulab_edu.person (ID, FULL_NAME, TITLE, AGE)
+select i, 'plan user ' || i, 'plan-title-' || i, 18 + i % 60
+from generate_series(1000001, 1020000) i;
+
+insert into ulab_edu.book (ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT)
+select 2000000 + i, 1000001 + i % 20000, 'plan book ' || i, 'plan author ' || i % 500, 100 + i % 900
+from generate_series(1, 100000) i;
+
+insert into PERSON (ID, FULL_NAME, TITLE, AGE)
+select i, 'plan user ' || i, 'plan-title-' || i, 18 + i % 60
+from generate_series(1000001, 1020000) i;
+
+insert into BOOK (ID, USER_ID, TITLE, AUTHOR, PAGE_COUNT)
+select 2000000 + i, 1000001 + i % 20000, 'plan book ' || i, 'plan author ' || i % 500, 100 + i % 900
+from generate_series(1, 100000) i;
+
+analyze ulab_edu.person;
+analyze ulab_edu.book;
+analyze PERSON;
+analyze BOOK;